@@ -0,0 +1,51 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import kilim.ForkJoinScheduler;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    the dispatch cost of ForkJoinScheduler, with each task forked directly (the default while no task has
+      a priority) and with every dispatch routed through the locked priority queue (weighted from the start)
+    numTasks tasks yield in a loop, ie each iteration is a publish, a fork and a run
+    reports the dispatches per second for each mode
+
+    usage: java kilim.bench.DispatchBench [numIters [numTasks [numThreads]]]
+*/
+public class DispatchBench {
+    static int numIters = 20000, numTasks = 100, numThreads = Runtime.getRuntime().availableProcessors();
+
+    static class Yielder extends Task {
+        public void execute() throws Pausable {
+            for (int ii=0; ii < numIters; ii++)
+                Task.yield();
+        }
+    }
+
+    static void run(boolean weighted) {
+        Scheduler sched = new ForkJoinScheduler(numThreads,weighted);
+        long start = System.nanoTime();
+        for (int ii=0; ii < numTasks; ii++)
+            new Yielder().setScheduler(sched).start();
+        sched.awaitIdle(0);
+        long delta = System.nanoTime() - start;
+        System.out.format("%-10s %10.0f dispatches/s\n",
+                weighted ? "weighted":"direct",1.0*numIters*numTasks*1e9/delta);
+        sched.shutdown();
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) numIters = Integer.parseInt(args[0]);
+        if (args.length > 1) numTasks = Integer.parseInt(args[1]);
+        if (args.length > 2) numThreads = Integer.parseInt(args[2]);
+        System.out.format("%d tasks x %d yields, %d threads\n",numTasks,numIters,numThreads);
+        for (int ii=0; ii < 3; ii++) {
+            run(true);
+            run(false);
+        }
+        System.exit(0);
+    }
+}
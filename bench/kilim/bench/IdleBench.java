@@ -0,0 +1,81 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import kilim.AffineScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.StealingScheduler;
+import kilim.Task;
+import kilim.concurrent.IdleStrategy;
+
+/*
+    the latency vs cpu tradeoff of the scheduler idle strategies
+    a plain thread sends a request to an echo task every gap micros, ie the worker is idle between requests,
+    and polls (yielding) for the reply, so that only the wakeup of the worker is measured
+    reports the median and p99 round trip and the cpu used by the scheduler threads, in cores
+
+    usage: java kilim.bench.IdleBench [numRequests [gapMicros [numThreads]]]
+*/
+public class IdleBench {
+    static int num = 5000, gap = 200, numThreads = 2;
+
+    static class Echo extends Task {
+        Mailbox<Long> mymb, reply;
+        Echo(Mailbox<Long> mymb,Mailbox<Long> reply) { this.mymb = mymb; this.reply = reply; }
+        public void execute() throws Pausable {
+            while (true)
+                reply.put(mymb.get());
+        }
+    }
+
+    static void run(String name,Scheduler sched) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        com.sun.management.OperatingSystemMXBean os
+                = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        Mailbox<Long> mymb = new Mailbox(), reply = new Mailbox();
+        Echo echo = new Echo(mymb,reply);
+        echo.setScheduler(sched);
+        echo.start();
+        long [] lat = new long[num];
+        // warmup
+        for (int ii=0; ii < num/10; ii++) {
+            mymb.putnb(0L);
+            while (reply.getnb()==null) Thread.yield();
+        }
+        long cpu0 = os.getProcessCpuTime(), self0 = mx.getCurrentThreadCpuTime(), start = System.nanoTime();
+        for (int ii=0; ii < num; ii++) {
+            LockSupport.parkNanos(gap*1000L);
+            long t0 = System.nanoTime();
+            mymb.putnb(t0);
+            while (reply.getnb()==null) Thread.yield();
+            lat[ii] = System.nanoTime()-t0;
+        }
+        long elapsed = System.nanoTime()-start;
+        long cpu = os.getProcessCpuTime()-cpu0 - (mx.getCurrentThreadCpuTime()-self0);
+        sched.shutdown();
+        Arrays.sort(lat);
+        System.out.format("%-32s p50: %8.2f us, p99: %8.2f us, scheduler cpu: %5.2f cores\n",
+                name,lat[num/2]/1000.0,lat[num*99/100]/1000.0,1.0*cpu/elapsed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        if (args.length > 1) gap = Integer.parseInt(args[1]);
+        if (args.length > 2) numThreads = Integer.parseInt(args[2]);
+        IdleStrategy [] strategies = new IdleStrategy[] {
+            IdleStrategy.PARK, IdleStrategy.SPIN_PARK, IdleStrategy.SPIN
+        };
+        String [] names = new String[] { "park", "spin-park", "spin" };
+        for (int ii=0; ii < strategies.length; ii++) {
+            run("affine   " + names[ii],new AffineScheduler(numThreads,0,strategies[ii]));
+            run("stealing " + names[ii],new StealingScheduler(numThreads).setIdleStrategy(strategies[ii]));
+        }
+        System.exit(0);
+    }
+}
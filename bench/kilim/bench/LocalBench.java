@@ -0,0 +1,64 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import kilim.AffineScheduler;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.TaskLocal;
+
+/*
+    the cost of a lookup from within a task, TaskLocal.get (pausable, via the woven getCurrentTask)
+      vs TaskLocal.get(task) vs ThreadLocal.get
+    a task sums num lookups of a boxed integer
+    reports the nanos per lookup
+
+    usage: java kilim.bench.LocalBench [numLookups]
+*/
+public class LocalBench extends Task {
+    static int num = 100000000;
+    static TaskLocal<Integer> local = new TaskLocal();
+    static ThreadLocal<Integer> thread = new ThreadLocal();
+    static volatile long sink;
+    int mode;
+
+    LocalBench(int mode) { this.mode = mode; }
+
+    public void execute() throws Pausable {
+        local.set(1);
+        thread.set(1);
+        long start = System.nanoTime();
+        sink = mode==0 ? pausable() : mode==1 ? explicit(this) : threadLocal();
+        long delta = System.nanoTime() - start;
+        String [] names = { "TaskLocal.get()", "TaskLocal.get(task)", "ThreadLocal.get()" };
+        System.out.format("%-20s %6.2f ns/lookup\n",names[mode],1.0*delta/num);
+    }
+
+    static long pausable() throws Pausable {
+        long sum = 0;
+        for (int ii=0; ii < num; ii++) sum += local.get();
+        return sum;
+    }
+
+    static long explicit(Task self) {
+        long sum = 0;
+        for (int ii=0; ii < num; ii++) sum += local.get(self);
+        return sum;
+    }
+
+    static long threadLocal() {
+        long sum = 0;
+        for (int ii=0; ii < num; ii++) sum += thread.get();
+        return sum;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        Scheduler sched = new AffineScheduler(1,0);
+        for (int ii=0; ii < 3; ii++)
+            for (int mode=0; mode < 3; mode++)
+                new LocalBench(mode).setScheduler(sched).start().joinb();
+        System.exit(0);
+    }
+}
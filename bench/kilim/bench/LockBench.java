@@ -0,0 +1,114 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.util.concurrent.atomic.AtomicLong;
+import kilim.AffineScheduler;
+import kilim.FiberLock;
+import kilim.Pausable;
+import kilim.ReentrantLock;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.TaskScope;
+
+/*
+    a contended lock, with the pinning kilim.ReentrantLock (which blocks the thread) and with FiberLock
+      (which pauses the task)
+    numContenders tasks repeatedly take the lock, spin for work micros inside it and yield,
+      while numBystanders tasks that never touch the lock yield in a loop on the same threads
+    reports the lock acquisitions per second and the bystander iterations per second,
+      ie how much the contention stalls the unrelated tasks that share the threads
+
+    usage: java kilim.bench.LockBench [numIters [numContenders [numBystanders [workMicros [numThreads]]]]]
+*/
+public class LockBench {
+    static int numIters = 2000, numContenders = 32, numBystanders = 32, work = 20, numThreads = 4;
+    static volatile boolean stop;
+    static volatile long sink;
+
+    static abstract class Locker {
+        abstract void lock() throws Pausable;
+        abstract void unlock() throws Pausable;
+        void prepare() throws Pausable {}
+    }
+
+    static class Pinning extends Locker {
+        ReentrantLock lock = new ReentrantLock();
+        void prepare() throws Pausable { lock.preLock(); }
+        void lock() throws Pausable { lock.lock(); }
+        void unlock() throws Pausable { lock.unlock(); }
+    }
+
+    static class Pausing extends Locker {
+        FiberLock lock = new FiberLock();
+        void lock() throws Pausable { lock.lock(); }
+        void unlock() throws Pausable { lock.unlock(); }
+    }
+
+    static class Contender extends Task {
+        Locker locker;
+        Contender(Locker locker) { this.locker = locker; }
+        public void execute() throws Pausable {
+            locker.prepare();
+            long sum = 0;
+            for (int ii=0; ii < numIters; ii++) {
+                locker.lock();
+                try {
+                    long end = System.nanoTime() + work*1000L;
+                    while (System.nanoTime() < end) sum++;
+                }
+                finally { locker.unlock(); }
+                Task.yield();
+            }
+            sink = sum;
+        }
+    }
+
+    static class Bystander extends Task {
+        AtomicLong count;
+        Bystander(AtomicLong count) { this.count = count; }
+        public void execute() throws Pausable {
+            long num = 0;
+            while (! stop) {
+                num++;
+                Task.yield();
+            }
+            count.addAndGet(num);
+        }
+    }
+
+    static void run(String name,Locker locker) {
+        Scheduler sched = new AffineScheduler(numThreads,0);
+        stop = false;
+        AtomicLong count = new AtomicLong();
+        TaskScope bystanders = new TaskScope().setScheduler(sched);
+        for (int ii=0; ii < numBystanders; ii++)
+            bystanders.fork(new Bystander(count));
+        TaskScope contenders = new TaskScope().setScheduler(sched);
+        long start = System.nanoTime();
+        for (int ii=0; ii < numContenders; ii++)
+            contenders.fork(new Contender(locker));
+        contenders.joinb();
+        long delta = System.nanoTime() - start;
+        stop = true;
+        bystanders.joinb();
+        System.out.format("%-10s %10.0f locks/s, %12.0f bystander yields/s\n",
+                name,1e9*numIters*numContenders/delta,1e9*count.get()/delta);
+        sched.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) numIters = Integer.parseInt(args[0]);
+        if (args.length > 1) numContenders = Integer.parseInt(args[1]);
+        if (args.length > 2) numBystanders = Integer.parseInt(args[2]);
+        if (args.length > 3) work = Integer.parseInt(args[3]);
+        if (args.length > 4) numThreads = Integer.parseInt(args[4]);
+        System.out.format("%d contenders x %d iters, %d bystanders, %d micros, %d threads\n",
+                numContenders,numIters,numBystanders,work,numThreads);
+        for (int ii=0; ii < 3; ii++) {
+            run("pinning",new Pinning());
+            run("FiberLock",new Pausing());
+        }
+        System.exit(0);
+    }
+}
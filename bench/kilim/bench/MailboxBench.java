@@ -0,0 +1,89 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import kilim.AffineScheduler;
+import kilim.Mailbox;
+import kilim.MailboxMPSC;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    multi-producer throughput of Mailbox (a monitor per operation) and MailboxMPSC (lock-free)
+    numProducers tasks each put numMsgs messages into a single bounded mailbox that one consumer task drains,
+      with the tasks spread across numThreads scheduler threads
+    reports the messages per second for each mailbox and producer count
+
+    usage: java kilim.bench.MailboxBench [numMsgs [numThreads [capacity]]]
+*/
+public class MailboxBench {
+    static int numMsgs = 1000000, numThreads = 4, capacity = 1024;
+    static int [] producerCounts = { 1, 2, 4, 16, 64 };
+
+    static abstract class Box {
+        abstract void put(Integer msg) throws Pausable;
+        abstract Integer get() throws Pausable;
+    }
+
+    static class Locked extends Box {
+        Mailbox<Integer> mb = new Mailbox(capacity,capacity);
+        void put(Integer msg) throws Pausable { mb.put(msg); }
+        Integer get() throws Pausable { return mb.get(); }
+    }
+
+    static class LockFree extends Box {
+        MailboxMPSC<Integer> mb = new MailboxMPSC(capacity);
+        void put(Integer msg) throws Pausable { mb.put(msg); }
+        Integer get() throws Pausable { return mb.get(); }
+    }
+
+    static class Producer extends Task {
+        Box box;
+        int num;
+        Producer(Box box,int num) { this.box = box; this.num = num; }
+        public void execute() throws Pausable {
+            Integer msg = 1;
+            for (int ii=0; ii < num; ii++)
+                box.put(msg);
+        }
+    }
+
+    static class Consumer extends Task<Long> {
+        Box box;
+        int num;
+        Consumer(Box box,int num) { this.box = box; this.num = num; }
+        public void execute() throws Pausable {
+            long sum = 0;
+            for (int ii=0; ii < num; ii++)
+                sum += box.get();
+            exit(sum);
+        }
+    }
+
+    static double run(Box box,int numProducers) {
+        Scheduler sched = new AffineScheduler(numThreads,0);
+        int per = numMsgs / numProducers;
+        long start = System.nanoTime();
+        Consumer consumer = new Consumer(box,per*numProducers);
+        consumer.setScheduler(sched).start();
+        for (int ii=0; ii < numProducers; ii++)
+            new Producer(box,per).setScheduler(sched).start();
+        consumer.joinb();
+        long delta = System.nanoTime() - start;
+        sched.shutdown();
+        return 1e9*per*numProducers/delta;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) numMsgs = Integer.parseInt(args[0]);
+        if (args.length > 1) numThreads = Integer.parseInt(args[1]);
+        if (args.length > 2) capacity = Integer.parseInt(args[2]);
+        System.out.format("%d messages, %d threads, capacity %d\n",numMsgs,numThreads,capacity);
+        for (int rep=0; rep < 3; rep++)
+            for (int num : producerCounts)
+                System.out.format("%4d producers: %12.0f msgs/s locked, %12.0f msgs/s lock-free\n",
+                        num,run(new Locked(),num),run(new LockFree(),num));
+        System.exit(0);
+    }
+}
@@ -0,0 +1,118 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import kilim.AffineScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.analysis.ClassInfo;
+import kilim.analysis.KilimContext;
+import kilim.tools.Javac;
+import kilim.tools.Weaver;
+
+/*
+    the cost and benefit of preemptive weaving (see KilimContext.preempt)
+    background tasks run batches of a tight loop that never pauses, yielding only between batches
+    the batch class is compiled and woven in-process, with and without the back-edge checks
+    a plain thread sends a timestamped request to a session task every gap micros
+      and the session records the delay till it runs, ie the time spent behind a batch
+    reports the median and p99 delay and the background batches completed, ie the throughput
+
+    usage: java kilim.bench.PreemptBench [numRequests [numBackground [batchIterations [sliceMicros]]]]
+*/
+public class PreemptBench {
+    static int num = 500, numBg = 4, gap = 1000;
+    static long work = 100000000L;
+
+    static String code =
+        "package preempt;" +
+        "import kilim.*;" +
+        "public class Batch extends Task {" +
+        "    public static volatile boolean stop;" +
+        "    public static volatile long batches, sink;" +
+        "    long work;" +
+        "    public Batch(long work) { this.work = work; }" +
+        "    public void execute() throws Pausable {" +
+        "        while (! stop) {" +
+        "            long sum = 0;" +
+        "            for (long ii=0; ii < work; ii++) sum += ii ^ (sum >>> 3);" +
+        "            sink = sum;" +
+        "            batches++;" +
+        "            Task.yield();" +
+        "        }" +
+        "    }" +
+        "}";
+
+    static class Session extends Task {
+        Mailbox<Long> mymb;
+        long [] lat;
+        Session(Mailbox<Long> mymb,long [] lat) { this.mymb = mymb; this.lat = lat; }
+        public void execute() throws Pausable {
+            for (int ii=0; ii < lat.length; ii++) {
+                long sent = mymb.get();
+                lat[ii] = System.nanoTime() - sent;
+            }
+        }
+    }
+
+    static class Loader extends ClassLoader {
+        Loader(List<ClassInfo> classes) {
+            super(PreemptBench.class.getClassLoader());
+            for (ClassInfo ci : classes)
+                if (ci.className.startsWith("preempt."))
+                    defineClass(ci.className,ci.bytes,0,ci.bytes.length);
+        }
+    }
+
+    static Class<?> weave(boolean preempt) throws Exception {
+        KilimContext context = new KilimContext();
+        context.preempt = preempt;
+        List<ClassInfo> classes = new Weaver(context).weave(Javac.compile(Arrays.asList(code)));
+        return new Loader(classes).loadClass("preempt.Batch");
+    }
+
+    static void run(String name,Class<?> batch) throws Exception {
+        Scheduler sched = new AffineScheduler(1,0);
+        batch.getField("stop").setBoolean(null,false);
+        batch.getField("batches").setLong(null,0);
+        for (int ii=0; ii < numBg; ii++)
+            ((Task) batch.getConstructor(long.class).newInstance(work)).setScheduler(sched).start();
+        Mailbox<Long> mymb = new Mailbox(num+1,num+1);
+        long [] lat = new long[num];
+        Session session = new Session(mymb,lat);
+        session.setScheduler(sched).start();
+        long start = System.nanoTime();
+        for (int ii=0; ii < num; ii++) {
+            LockSupport.parkNanos(gap*1000L);
+            mymb.putnb(System.nanoTime());
+        }
+        session.joinb();
+        double seconds = (System.nanoTime() - start)/1e9;
+        batch.getField("stop").setBoolean(null,true);
+        sched.idledown();
+        sched.shutdown();
+        Arrays.sort(lat);
+        System.out.format("%-10s p50: %9.1f us, p99: %9.1f us, batches/s: %6.2f\n",
+                name,lat[num/2]/1000.0,lat[num*99/100]/1000.0,batch.getField("batches").getLong(null)/seconds);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        if (args.length > 1) numBg = Integer.parseInt(args[1]);
+        if (args.length > 2) work = Long.parseLong(args[2]);
+        if (args.length > 3) Task.preemptSlice = Long.parseLong(args[3])*1000;
+        System.out.format("%d requests every %d us, %d background tasks x %d iterations, %d us slice, 1 thread\n",
+                num,gap,numBg,work,Task.preemptSlice/1000);
+        Class<?> plain = weave(false), preempt = weave(true);
+        for (int ii=0; ii < 2; ii++) {
+            run("plain",plain);
+            run("preempt",preempt);
+        }
+        System.exit(0);
+    }
+}
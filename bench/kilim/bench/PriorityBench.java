@@ -0,0 +1,93 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import kilim.AffineScheduler;
+import kilim.ForkJoinScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    the latency of a session task under background load, with the session at normal and at high priority
+    the background tasks (normal priority) burn cpu in slices of work micros and yield,
+      ie the run queues are always full
+    a plain thread sends a timestamped request to the session every gap micros,
+      and the session records the delay till it runs, ie the time spent queued behind the background
+    reports the median and p99 delay and the number of background slices run
+
+    usage: java kilim.bench.PriorityBench [numRequests [numBackground [workMicros [numThreads]]]]
+*/
+public class PriorityBench {
+    static int num = 2000, numBg = 100, work = 100, gap = 1000, numThreads = 2;
+    static volatile boolean stop;
+    static volatile long sink;
+
+    static class Background extends Task {
+        long [] slices;
+        Background(long [] slices) { this.slices = slices; }
+        public void execute() throws Pausable {
+            long sum = 0;
+            while (! stop) {
+                long end = System.nanoTime() + work*1000L;
+                while (System.nanoTime() < end) sum++;
+                synchronized (slices) { slices[0]++; }
+                Task.yield();
+            }
+            sink = sum;
+        }
+    }
+
+    static class Session extends Task {
+        Mailbox<Long> mymb;
+        long [] lat;
+        Session(Mailbox<Long> mymb,long [] lat) { this.mymb = mymb; this.lat = lat; }
+        public void execute() throws Pausable {
+            for (int ii=0; ii < lat.length; ii++) {
+                long sent = mymb.get();
+                lat[ii] = System.nanoTime() - sent;
+            }
+        }
+    }
+
+    static void run(String name,Scheduler sched,int priority) {
+        stop = false;
+        long [] slices = new long[1];
+        for (int ii=0; ii < numBg; ii++)
+            new Background(slices).setScheduler(sched).start();
+        Mailbox<Long> mymb = new Mailbox(num+1,num+1);
+        long [] lat = new long[num];
+        Session session = new Session(mymb,lat);
+        session.setPriority(priority);
+        session.setScheduler(sched).start();
+        for (int ii=0; ii < num; ii++) {
+            LockSupport.parkNanos(gap*1000L);
+            mymb.putnb(System.nanoTime());
+        }
+        session.joinb();
+        stop = true;
+        sched.idledown();
+        sched.shutdown();
+        Arrays.sort(lat);
+        System.out.format("%-24s p50: %9.1f us, p99: %9.1f us, background slices: %d\n",
+                name,lat[num/2]/1000.0,lat[num*99/100]/1000.0,slices[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        if (args.length > 1) numBg = Integer.parseInt(args[1]);
+        if (args.length > 2) work = Integer.parseInt(args[2]);
+        if (args.length > 3) numThreads = Integer.parseInt(args[3]);
+        System.out.format("%d requests every %d us, %d background tasks x %d us slices, %d threads\n",
+                num,gap,numBg,work,numThreads);
+        for (int priority : new int[] { Task.PRIORITY_NORMAL, Task.PRIORITY_HIGH }) {
+            String level = priority==Task.PRIORITY_HIGH ? "high":"normal";
+            run("affine   " + level,new AffineScheduler(numThreads,0),priority);
+            run("forkjoin " + level,new ForkJoinScheduler(numThreads),priority);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,104 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import kilim.AffineScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    request fan-out with and without fiber and timer recycling (see Task.setRecyclable)
+    a driver task forks width short-lived children per round, each of which sleeps (a timer and a pause)
+      and reports back on a mailbox
+    reports the children per second, the heap allocated per child across all threads
+      (from com.sun.management.ThreadMXBean, where available) and the number of collections
+
+    usage: java kilim.bench.RecycleBench [numRounds [width]]
+*/
+public class RecycleBench {
+    static int numRounds = 2000, width = 100;
+
+    static class Driver extends Task {
+        public void execute() throws Pausable {
+            final Mailbox<Integer> done = new Mailbox(width,width);
+            for (int round=0; round < numRounds; round++) {
+                for (int ii=0; ii < width; ii++) {
+                    final int val = ii;
+                    new Task.Fork(new Pausable.Fork() {
+                        public void execute() throws Pausable {
+                            Task.sleep(0);
+                            done.put(val);
+                        }
+                    }).setScheduler(getScheduler()).start();
+                }
+                for (int ii=0; ii < width; ii++)
+                    done.get();
+            }
+        }
+    }
+
+    /** the heap allocated by each live thread, or null if unavailable */
+    static HashMap<Long,Long> allocated() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (! (bean instanceof com.sun.management.ThreadMXBean))
+            return null;
+        long [] ids = bean.getAllThreadIds();
+        long [] bytes = ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(ids);
+        HashMap<Long,Long> map = new HashMap();
+        for (int ii=0; ii < ids.length; ii++)
+            if (bytes[ii] > 0) map.put(ids[ii],bytes[ii]);
+        return map;
+    }
+
+    /** the heap allocated since a snapshot by the threads that are still live */
+    static long allocated(HashMap<Long,Long> prev) {
+        HashMap<Long,Long> now = allocated();
+        if (prev==null || now==null)
+            return 0;
+        long sum = 0;
+        for (Map.Entry<Long,Long> entry : now.entrySet()) {
+            Long before = prev.get(entry.getKey());
+            sum += entry.getValue() - (before==null ? 0 : before);
+        }
+        return sum;
+    }
+
+    static long collections() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            sum += gc.getCollectionCount();
+        return sum;
+    }
+
+    static void run(boolean recycle) {
+        Task.recycle = recycle;
+        Scheduler sched = new AffineScheduler(1,0);
+        HashMap<Long,Long> snapshot = allocated();
+        long start = System.nanoTime(), gcs = collections();
+        new Driver().setScheduler(sched).start().joinb();
+        long delta = System.nanoTime() - start;
+        long bytes = allocated(snapshot);
+        gcs = collections() - gcs;
+        long num = 1L*numRounds*width;
+        System.out.format("%-10s %10.0f tasks/s, %6.1f bytes/task, %d collections\n",
+                recycle ? "recycle":"fresh",num*1e9/delta,1.0*bytes/num,gcs);
+        sched.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) numRounds = Integer.parseInt(args[0]);
+        if (args.length > 1) width = Integer.parseInt(args[1]);
+        System.out.format("%d rounds x %d children\n",numRounds,width);
+        for (int ii=0; ii < 3; ii++) {
+            run(false);
+            run(true);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,67 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import kilim.AffineScheduler;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.TaskGroup;
+import kilim.TaskScope;
+
+/*
+    the cost of joining a fan-out of trivial children, TaskGroup (exit mailboxes and select) vs TaskScope (a counter)
+    a parent task forks num children, each of which yields once, and joins them
+    reports the children per second
+
+    usage: java kilim.bench.ScopeBench [numChildren [numThreads]]
+*/
+public class ScopeBench {
+    static int num = 100000, numThreads = 1;
+
+    static class Child extends Task<Integer> {
+        public void execute() throws Pausable {
+            Task.yield();
+            exit(id);
+        }
+    }
+
+    static class Grouped extends Task {
+        public void execute() throws Pausable {
+            TaskGroup group = new TaskGroup();
+            group.setScheduler(getScheduler());
+            for (int ii=0; ii < num; ii++)
+                group.add(new Child().setScheduler(getScheduler()).start());
+            group.join();
+        }
+    }
+
+    static class Scoped extends Task {
+        public void execute() throws Pausable {
+            TaskScope<Integer> scope = new TaskScope(new Integer[num]).setScheduler(getScheduler());
+            for (int ii=0; ii < num; ii++)
+                scope.fork(new Child());
+            scope.join();
+        }
+    }
+
+    static void run(String name,Task parent) {
+        Scheduler sched = new AffineScheduler(numThreads,0);
+        long start = System.nanoTime();
+        parent.setScheduler(sched).start().joinb();
+        long delta = System.nanoTime() - start;
+        System.out.format("%-6s %10.0f children/s\n",name,num*1e9/delta);
+        sched.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        if (args.length > 1) numThreads = Integer.parseInt(args[1]);
+        System.out.format("%d children, %d threads\n",num,numThreads);
+        for (int ii=0; ii < 3; ii++) {
+            run("group",new Grouped());
+            run("scope",new Scoped());
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,69 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.lang.management.ManagementFactory;
+import kilim.AffineScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    the cost of a task sleep, derived from Sleep, ie heartbeat style loops of short sleeps
+    timer:   Task.sleep, which pauses on the task's own timer
+    mailbox: the old implementation, a timed get on a throwaway Mailbox
+    reports the sleeps per second and the heap allocated per sleep across all threads
+      (from com.sun.management.ThreadMXBean, where available)
+
+    usage: java kilim.bench.SleepBench [numTasks [numSleeps [millis]]]
+*/
+public class SleepBench extends Task {
+    static int numTasks = 1000, numSleeps = 200;
+    static long millis = 1;
+    static boolean mailbox;
+
+    public void execute() throws Pausable {
+        for (int ii=0; ii < numSleeps; ii++)
+            if (mailbox) new Mailbox<Integer>(1).get(millis);
+            else Task.sleep(millis);
+    }
+
+    static long allocated() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (! (bean instanceof com.sun.management.ThreadMXBean))
+            return 0;
+        long sum = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(bean.getAllThreadIds()))
+            if (bytes > 0) sum += bytes;
+        return sum;
+    }
+
+    static void run(boolean useMailbox) {
+        mailbox = useMailbox;
+        Scheduler sched = new AffineScheduler(1,0);
+        // start the threads before the measurement
+        new SleepBench() { public void execute() throws Pausable {} }.setScheduler(sched).start().joinb();
+        long start = System.nanoTime(), bytes = allocated();
+        for (int ii=0; ii < numTasks; ii++)
+            new SleepBench().setScheduler(sched).start();
+        sched.idledown();
+        long delta = System.nanoTime() - start;
+        bytes = allocated() - bytes;
+        long num = 1L*numTasks*numSleeps;
+        System.out.format("%-8s %10.0f sleeps/s, %6.1f bytes/sleep\n",
+                mailbox ? "mailbox":"timer",num*1e9/delta,1.0*bytes/num);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) numTasks = Integer.parseInt(args[0]);
+        if (args.length > 1) numSleeps = Integer.parseInt(args[1]);
+        if (args.length > 2) millis = Long.parseLong(args[2]);
+        System.out.format("%d tasks x %d sleeps of %d ms\n",numTasks,numSleeps,millis);
+        for (int ii=0; ii < 3; ii++) {
+            run(true);
+            run(false);
+        }
+        System.exit(0);
+    }
+}
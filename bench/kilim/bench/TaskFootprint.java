@@ -0,0 +1,79 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import kilim.AffineScheduler;
+import kilim.Pausable;
+import kilim.PauseReason;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    the heap footprint of a task, in the manner of LotsOfTasks
+    created: tasks that have been constructed but not started
+    parked:  tasks that have been started and are paused a couple of frames down, ie idle sessions
+    reports the retained heap per task, measured as the change in used heap after gc
+
+    usage: java kilim.bench.TaskFootprint [numTasks]
+*/
+public class TaskFootprint {
+    static int num = 200000;
+    static final PauseReason forever = new PauseReason() {
+        public boolean isValid(Task t) { return true; }
+    };
+
+    static class Session extends Task {
+        public void execute() throws Pausable {
+            loop(0);
+        }
+        void loop(int depth) throws Pausable {
+            if (depth < 2) loop(depth+1);
+            else Task.pause(forever);
+        }
+    }
+
+    static long used() throws Exception {
+        Runtime rt = Runtime.getRuntime();
+        long prev = Long.MAX_VALUE, used = rt.totalMemory() - rt.freeMemory();
+        for (int ii=0; ii < 10 && used < prev; ii++) {
+            System.gc();
+            Thread.sleep(50);
+            prev = used;
+            used = rt.totalMemory() - rt.freeMemory();
+        }
+        return used;
+    }
+
+    static void created() throws Exception {
+        Task [] tasks = new Task[num];
+        long base = used();
+        for (int ii=0; ii < num; ii++)
+            tasks[ii] = new Session();
+        long delta = used() - base;
+        System.out.format("%-8s %6.1f bytes/task\n","created",1.0*delta/num);
+        tasks[0].toString();
+    }
+
+    static void parked() throws Exception {
+        Scheduler sched = new AffineScheduler(1,0);
+        Task [] tasks = new Task[num];
+        long base = used();
+        for (int ii=0; ii < num; ii++)
+            tasks[ii] = new Session().setScheduler(sched).start();
+        sched.idledown();
+        long delta = used() - base;
+        System.out.format("%-8s %6.1f bytes/task\n","parked",1.0*delta/num);
+        tasks[0].toString();
+        sched.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        System.out.format("%d tasks\n",num);
+        for (int ii=0; ii < 2; ii++) {
+            created();
+            parked();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,73 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.bench;
+
+import java.util.Random;
+import kilim.Event;
+import kilim.EventPublisher;
+import kilim.EventSubscriber;
+import kilim.timerservice.Timer;
+import kilim.timerservice.TimerPriorityHeap;
+import kilim.timerservice.TimerStore;
+import kilim.timerservice.TimerWheel;
+
+/*
+    per-connection timeouts on the TimerService backends, TimerPriorityHeap and TimerWheel, driven directly
+      (ie without the service's queue, lock or watchdog) so that only the store is measured
+    numTimers connections each hold an idle timeout of about timeout millis, and each request moves one
+      connection's timeout out again. the clock advances a milli per batch of requests and the store is
+      expired, so the timeouts of the connections that went quiet fire
+    reports the reschedules per second and the number of timers fired
+
+    the end to end comparison is with the examples, selecting the backend with a property, eg
+        java -Dkilim.TimerService.wheel=true -cp ... kilim.examples.TimerBlast2
+
+    usage: java kilim.bench.TimerBench [numTimers [numRequests [timeoutMillis]]]
+*/
+public class TimerBench {
+    static int numTimers = 1000000, numRequests = 10000000, timeout = 30000;
+    static long fired;
+
+    static class Connection implements EventSubscriber {
+        Timer timer = new Timer(this);
+        public void onEvent(EventPublisher ep,Event e) {
+            fired++;
+            timer.setLiteral(-2);
+        }
+    }
+
+    static void run(TimerStore store,long clock) {
+        Random rand = new Random(0);
+        Connection [] conns = new Connection[numTimers];
+        for (int ii=0; ii < numTimers; ii++) {
+            conns[ii] = new Connection();
+            conns[ii].timer.setLiteral(clock + timeout + rand.nextInt(timeout));
+            store.schedule(conns[ii].timer);
+        }
+        fired = 0;
+        int batch = Math.max(1,numRequests/(4*timeout));
+        long start = System.nanoTime();
+        for (int ii=0; ii < numRequests; ii++) {
+            Timer timer = conns[rand.nextInt(numTimers)].timer;
+            timer.setLiteral(clock + timeout + rand.nextInt(100));
+            store.schedule(timer);
+            if (ii % batch==0)
+                store.expire(++clock);
+        }
+        long delta = System.nanoTime() - start;
+        System.out.format("%-20s %10.0f reschedules/s, %d fired\n",
+                store.getClass().getSimpleName(),numRequests*1e9/delta,fired);
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) numTimers = Integer.parseInt(args[0]);
+        if (args.length > 1) numRequests = Integer.parseInt(args[1]);
+        if (args.length > 2) timeout = Integer.parseInt(args[2]);
+        System.out.format("%d timers, %d requests, %d millis timeout\n",numTimers,numRequests,timeout);
+        long clock = System.currentTimeMillis();
+        for (int ii=0; ii < 3; ii++) {
+            run(new TimerPriorityHeap(),clock);
+            run(new TimerWheel(clock),clock);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+#!/bin/bash
+# run the kilim.bench programs with each scheduler, after `mvn install` in the parent and `mvn package` here
+cd $(dirname $0)
+cp=target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/fd/1)
+
+for prog in "PingPong" "Chain -ntasks 500 -nmsgs 10000" "Ring -n 1000 -t 100" "LotsOfTasks -nTasks 100000 -nRounds 3"; do
+    for sched in affine forkjoin virtual; do
+        echo "=== $sched kilim.bench.$prog"
+        java -cp $cp kilim.loom.Run $sched kilim.bench.$prog | tail -3
+    done
+done
+java -cp $cp kilim.loom.LoomBench 200 10
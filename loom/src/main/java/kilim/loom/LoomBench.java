@@ -0,0 +1,96 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.loom;
+
+import kilim.AffineScheduler;
+import kilim.ExitMsg;
+import kilim.ForkJoinScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+/*
+    woven tasks that make a blocking call, eg a jdbc driver or file io, mixed with tasks that only pass messages
+    with a fixed pool the blocked tasks stall the threads and the messaging tasks queued behind them,
+      with virtual threads a blocking call only parks its own virtual thread
+    the existing kilim.bench programs (pure messaging) are compared by bench.sh
+
+    usage: java kilim.loom.LoomBench [numBlocking [blockMillis [numRounds]]]
+*/
+public class LoomBench {
+    static int num = 1000, block = 10, rounds = 5, numRing = 100, laps = 1000;
+
+    static class Blocker extends Task {
+        public void execute() throws Pausable, Exception {
+            Task.yield();
+            Thread.sleep(block);
+            Task.yield();
+        }
+    }
+
+    static class Relay extends Task {
+        Mailbox<Integer> mymb, next;
+        Relay(Mailbox<Integer> mymb,Mailbox<Integer> next) { this.mymb = mymb; this.next = next; }
+        public void execute() throws Pausable {
+            for (int ii=0; ii < laps; ii++)
+                next.put(mymb.get());
+        }
+    }
+
+    /** run the blocking tasks alongside a ring of relays, returning the elapsed millis for each */
+    static long [] run(Scheduler sched) {
+        Mailbox<ExitMsg> exitmb = new Mailbox<ExitMsg>();
+        Mailbox<ExitMsg> ringmb = new Mailbox<ExitMsg>();
+        Mailbox<Integer> [] mbs = new Mailbox[numRing];
+        for (int ii=0; ii < numRing; ii++)
+            mbs[ii] = new Mailbox<Integer>();
+        long start = System.nanoTime();
+        for (int ii=0; ii < num; ii++) {
+            Task task = new Blocker();
+            task.setScheduler(sched);
+            task.informOnExit(exitmb);
+            task.start();
+        }
+        for (int ii=0; ii < numRing; ii++) {
+            Task task = new Relay(mbs[ii],mbs[(ii+1) % numRing]);
+            task.setScheduler(sched);
+            task.informOnExit(ringmb);
+            task.start();
+        }
+        mbs[0].putnb(0);
+        long ring = 0, blocking = 0;
+        for (int ii=0, jj=0; ii+jj < num+numRing;) {
+            ExitMsg em = exitmb.getnb();
+            if (em != null && ++ii==num)
+                blocking = System.nanoTime() - start;
+            em = ringmb.getnb();
+            if (em != null && ++jj==numRing)
+                ring = System.nanoTime() - start;
+            if (em==null)
+                Thread.yield();
+        }
+        return new long[] { blocking/1000000, ring/1000000 };
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) num = Integer.parseInt(args[0]);
+        if (args.length > 1) block = Integer.parseInt(args[1]);
+        if (args.length > 2) rounds = Integer.parseInt(args[2]);
+        int nt = Scheduler.defaultNumberThreads;
+        System.out.format("%d tasks blocking for %d millis, a ring of %d relays x %d laps, %d threads\n",
+                num,block,numRing,laps,nt);
+        String [] names = { "affine", "forkjoin", "virtual" };
+        for (int round=0; round < rounds; round++) {
+            Scheduler [] scheds = {
+                new AffineScheduler(nt,0), new ForkJoinScheduler(nt), new VirtualThreadScheduler()
+            };
+            for (int ii=0; ii < scheds.length; ii++) {
+                long [] time = run(scheds[ii]);
+                scheds[ii].shutdown();
+                System.out.format("%-10s blocking: %6d ms, ring: %6d ms\n",names[ii],time[0],time[1]);
+            }
+        }
+        System.exit(0);
+    }
+}
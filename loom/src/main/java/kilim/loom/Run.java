@@ -0,0 +1,42 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.loom;
+
+import java.lang.reflect.Method;
+import kilim.AffineScheduler;
+import kilim.ForkJoinScheduler;
+import kilim.Scheduler;
+import kilim.StealingScheduler;
+
+/*
+    run the main method of a kilim.bench program with the named default scheduler, and then wait
+    the bench programs return from main and call System.exit from a task, but the scheduler threads are daemons
+
+    usage: java kilim.loom.Run affine|forkjoin|stealing|virtual class [args]
+*/
+public class Run {
+    static Scheduler make(String name) {
+        int nt = Scheduler.defaultNumberThreads;
+        switch (name) {
+            case "affine": return new AffineScheduler(nt,0);
+            case "forkjoin": return new ForkJoinScheduler(nt);
+            case "stealing": return new StealingScheduler(nt);
+            case "virtual": return new VirtualThreadScheduler();
+        }
+        throw new IllegalArgumentException("unknown scheduler: " + name);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("usage: java kilim.loom.Run affine|forkjoin|stealing|virtual class [args]");
+            System.exit(1);
+        }
+        Scheduler.setDefaultScheduler(make(args[0]));
+        String [] pargs = new String[args.length-2];
+        System.arraycopy(args,2,pargs,0,pargs.length);
+        Class<?> mainClass = Run.class.getClassLoader().loadClass(args[1]);
+        Method mainMethod = mainClass.getMethod("main",String[].class);
+        mainMethod.invoke(null,new Object[] {pargs});
+        Scheduler.getDefaultScheduler().idledown();
+    }
+}
@@ -0,0 +1,128 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.loom;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.timerservice.Timer;
+import kilim.timerservice.TimerService;
+
+/*
+    a scheduler that runs each task dispatch on a new virtual thread (java 21, JEP 444)
+    woven tasks keep their fiber semantics, ie pausing unwinds the stack and releases the virtual thread,
+      but a blocking call inside a task (jdbc, file io, Thread.sleep) now parks the virtual thread
+      and releases the carrier rather than stalling an OS thread and everything queued behind it
+    the carriers are the jdk's virtual thread scheduler, ie a ForkJoinPool sized by
+      jdk.virtualThreadScheduler.parallelism
+    a virtual thread per dispatch is cheap (no stack to grow, the task's state lives in its Fiber)
+      but loses the thread affinity of AffineScheduler, so like ForkJoinScheduler this isn't pinnable
+    a blocking call inside a synchronized block (eg Mailbox.getb) pins the carrier (until JEP 491, java 24)
+
+    testing with this scheduler:
+        java -ea -cp target/classes:$cp kilim.loom.VirtualThreadScheduler \
+            junit.textui.TestRunner kilim.test.AllWoven
+*/
+public class VirtualThreadScheduler extends Scheduler implements TimerService.WatchdogContext {
+    protected final ThreadFactory factory;
+    protected final TimerService timerService;
+    /** the number of tasks that have been scheduled and haven't completed */
+    protected final AtomicInteger count = new AtomicInteger(0);
+    /** the number of tasks that have been scheduled but haven't started */
+    protected final AtomicInteger queued = new AtomicInteger(0);
+
+    public VirtualThreadScheduler() {
+        this(Thread.ofVirtual().name("kilim-virtual-",0).factory());
+    }
+
+    /**
+     * create the scheduler
+     * @param factory the factory to create a thread per dispatch, generally a virtual thread factory
+     */
+    public VirtualThreadScheduler(ThreadFactory factory) {
+        this.factory = factory;
+        timerService = new TimerService(this);
+    }
+
+    public boolean isPinnable() { return false; }
+
+    public void schedule(int index,Task task) {
+        assert index < 0 : "attempt to pin task to VirtualThreadScheduler";
+        publish(task);
+    }
+
+    public void publish(TimerService.WatchdogTask dog) {
+        publish((Runnable) dog);
+    }
+
+    public void publish(Runnable task) {
+        count.incrementAndGet();
+        queued.incrementAndGet();
+        factory.newThread(() -> execute(task)).start();
+    }
+
+    protected void execute(Runnable task) {
+        queued.decrementAndGet();
+        try {
+            task.run();
+        }
+        catch (Throwable ex) {
+            log(this,ex);
+        }
+        timerService.trigger(this);
+        if (count.decrementAndGet()==0)
+            quiescent();
+    }
+
+    public boolean isEmpty() {
+        return count.get()==0;
+    }
+
+    public boolean isEmptyish() {
+        return queued.get()==0;
+    }
+
+    /** the parallelism of the carrier pool */
+    public int numThreads() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public void scheduleTimer(Timer t) {
+        timerService.submit(t);
+    }
+
+    public void idledown() {
+        awaitIdle(0);
+    }
+
+    protected boolean isIdle() {
+        return resolved(timerService,this);
+    }
+
+    public void shutdown() {
+        super.shutdown();
+        timerService.shutdown();
+    }
+
+    /** run the main method from another class using this scheduler as the default scheduler */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println(
+                    "usage:\n"
+                    + "  java kilim.loom.VirtualThreadScheduler class [args]\n"
+                    + "call the main method of the specified class and pass the remaining arguments,\n"
+                    + "  using `new VirtualThreadScheduler()` as the default scheduler"
+            );
+            System.exit(1);
+        }
+        Scheduler.setDefaultScheduler(new VirtualThreadScheduler());
+        String [] pargs = new String[args.length-1];
+        System.arraycopy(args,1,pargs,0,pargs.length);
+        Class<?> mainClass = VirtualThreadScheduler.class.getClassLoader().loadClass(args[0]);
+        Method mainMethod = mainClass.getMethod("main",String[].class);
+        mainMethod.invoke(null,new Object[] {pargs});
+    }
+}
@@ -2,11 +2,15 @@
 
 package kilim;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import kilim.concurrent.IdleStrategy;
+import kilim.concurrent.WeightedQueue;
 import kilim.timerservice.Timer;
 
 import kilim.timerservice.TimerService;
@@ -42,13 +46,24 @@ public class AffineScheduler extends Scheduler implements ThreadFactory {
      * @param queueSize the queue size to use, or use the default if less than one
      */
     public AffineScheduler(int numThreads,int queueSize) {
+        this(numThreads,queueSize,defaultIdleStrategy);
+    }
+
+    /**
+     * create the scheduler
+     * @param numThreads the number of threads to use, or use the default if less than one
+     * @param queueSize the queue size to use, or use the default if less than one
+     * @param idle what an executor thread does when its queue is empty before blocking,
+     *          trading cpu for the latency of the futex wakeup
+     */
+    public AffineScheduler(int numThreads,int queueSize,IdleStrategy idle) {
         if (numThreads <= 0)
             numThreads = defaultNumberThreads;
         if (queueSize <= 0)
             queueSize = Integer.MAX_VALUE;
         exes = new Executor[numThreads];
         for (int ii=0; ii < numThreads; ii++)
-            exes[ii] = new Executor(new LinkedBlockingQueue(queueSize));
+            exes[ii] = new Executor(new IdleQueue(queueSize,idle));
         timerService = new TimerService(exes[0]);
     }
 
@@ -56,7 +71,7 @@ public class AffineScheduler extends Scheduler implements ThreadFactory {
         publish(index,t);
     }
     public void idledown() {
-        waitIdle(100);
+        awaitIdle(0);
     }
 
     // fixme:denial-of-service
@@ -107,17 +122,19 @@ public class AffineScheduler extends Scheduler implements ThreadFactory {
         
      */
     public boolean waitIdle(int delay) {
-        while (!Thread.interrupted()) {
-            if (resolved(timerService))
-                return true;
-            try { Thread.sleep(delay); } catch (InterruptedException ex) { break; }
-        }
-        return false;
+        return awaitIdle(0);
+    }
+
+    protected boolean isIdle() {
+        return resolved(timerService);
     }
 
     protected boolean resolved(TimerService ts) {
-        if (count.get() > 0) return false;
-        return ts.isEmptyLazy(exes[0]);
+        return resolved(ts,exes[0]);
+    }
+
+    public boolean isEmpty() {
+        return count.get()==0;
     }
 
     
@@ -131,8 +148,48 @@ public class AffineScheduler extends Scheduler implements ThreadFactory {
         return TimerService.factory.newThread(r);
     }
 
+    /** the wrapper for a submitted task that carries the task's priority into the queue */
+    protected static class Ranked<V> extends FutureTask<V> {
+        protected final int priority;
+        public Ranked(Runnable runnable,V value) {
+            super(runnable,value);
+            priority = priority(runnable);
+        }
+    }
+
+    /**
+     * a queue that drains the task priority classes by weight (see Task.setPriority)
+     * and applies an idle strategy before blocking in take
+     */
+    protected static class IdleQueue<E> extends WeightedQueue<E> {
+        protected final IdleStrategy idle;
+
+        public IdleQueue(int capacity,IdleStrategy idle) {
+            super(capacity,priorityWeights);
+            this.idle = idle;
+        }
+
+        protected int level(E e) {
+            return e instanceof Ranked ? ((Ranked) e).priority : priority(e);
+        }
+
+        public E take() throws InterruptedException {
+            for (int round=0; (round = idle.idle(round)) >= 0;) {
+                // isEmpty is a volatile read, poll takes the lock
+                if (! isEmpty()) {
+                    E e = poll();
+                    if (e != null)
+                        return e;
+                }
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+            return super.take();
+        }
+    }
+
     protected class Executor extends ThreadPoolExecutor implements WatchdogContext {
-        protected LinkedBlockingQueue<Task> que;
+        protected BlockingQueue<Runnable> que;
         protected AtomicInteger pending = new AtomicInteger();
         
         protected void publish(Task task) {
@@ -140,15 +197,20 @@ public class AffineScheduler extends Scheduler implements ThreadFactory {
             submit(task);
         }
         
-        public Executor(LinkedBlockingQueue que) {
+        public Executor(BlockingQueue que) {
             super(1,1,Integer.MAX_VALUE,TimeUnit.DAYS,que,AffineScheduler.this);
             this.que = que;
         }
 
+        protected <V> RunnableFuture<V> newTaskFor(Runnable runnable,V value) {
+            return new Ranked<V>(runnable,value);
+        }
+
         protected void afterExecute(Runnable r,Throwable t) {
             pending.decrementAndGet();
             timerService.trigger(this);
-            count.decrementAndGet();
+            if (count.decrementAndGet()==0)
+                quiescent();
         }
 
         public boolean isEmpty() {
@@ -0,0 +1,203 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import kilim.timerservice.Timer;
+
+/**
+ * an elastic pool of threads for blocking calls, eg jdbc or file io, that would otherwise stall a worker.
+ * run moves the calling task to the pool with resumeOnScheduler, makes the call on a pool thread
+ * and then moves the task back to its original scheduler, ie the fiber is unwound once each way
+ * and no other task is blocked. threads are started on demand up to maxThreads and exit when idle,
+ * and at most maxQueued calls wait for a thread - beyond that run throws a RejectedExecutionException
+ * without leaving the original scheduler. the time that calls wait for a thread is recorded
+ * <pre>
+ *     ResultSet rs = Blocking.run(new Callable&lt;ResultSet&gt;() {
+ *         public ResultSet call() throws Exception { return stmt.executeQuery(); }
+ *     });
+ * </pre>
+ */
+public class Blocking extends Scheduler implements ThreadFactory {
+    public static volatile Blocking defaultBlocking = null;
+    /** the limits of the default pool, set kilim.Blocking.maxThreads and kilim.Blocking.maxQueued to override */
+    public static int defaultMaxThreads = Integer.getInteger("kilim.Blocking.maxThreads",64);
+    public static int defaultMaxQueued = Integer.getInteger("kilim.Blocking.maxQueued",1024);
+
+    private final ThreadPoolExecutor pool;
+    private final int maxThreads, maxQueued;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    /** the calls that have been admitted and haven't returned */
+    private final AtomicInteger pending = new AtomicInteger();
+    /** the tasks that have been handed to the pool and haven't finished running */
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong numOffloaded = new AtomicLong(), numRejected = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong(), maxQueueNanos = new AtomicLong();
+
+    /**
+     * @param maxThreads the max number of threads, ie of concurrent calls
+     * @param maxQueued the max number of calls that wait for a thread
+     * @param keepAlive the millis that an idle thread waits for work before exiting
+     */
+    public Blocking(int maxThreads,int maxQueued,long keepAlive) {
+        this.maxThreads = maxThreads;
+        this.maxQueued = maxQueued;
+        pool = new ThreadPoolExecutor(maxThreads,maxThreads,keepAlive,TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),this);
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r,"kilim-blocking-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** get and possibly instantiate the default pool */
+    public synchronized static Blocking getDefault() {
+        if (defaultBlocking==null)
+            defaultBlocking = new Blocking(defaultMaxThreads,defaultMaxQueued,60000);
+        return defaultBlocking;
+    }
+
+    /** make a blocking call on the default pool, see call */
+    public static <T> T run(Callable<T> body) throws Pausable, Exception {
+        return getDefault().call(body);
+    }
+
+    /**
+     * make a blocking call on a thread from the pool, pausing the current task till it returns.
+     * the task resumes on its original scheduler, including when the body throws, eg an Error
+     * @return the value returned by the body
+     * @throws RejectedExecutionException if the pool and its queue are full, in which case body isn't called
+     */
+    public <T> T call(Callable<T> body) throws Pausable, Exception {
+        Task task = Task.getCurrentTask();
+        Scheduler home = task.getScheduler();
+        if (pending.incrementAndGet() > maxThreads + maxQueued) {
+            pending.decrementAndGet();
+            numRejected.incrementAndGet();
+            throw new RejectedExecutionException("blocking pool is full: " + maxThreads + "+" + maxQueued);
+        }
+        T result = null;
+        Throwable failure = null;
+        try {
+            task.resumeOnScheduler(this);
+            result = body.call();
+        }
+        catch (Throwable ex) { failure = ex; }
+        finally { pending.decrementAndGet(); }
+        // a cancellation that arrived during the call is thrown here, ie on the original scheduler
+        task.resumeOnScheduler(home);
+        if (failure instanceof Exception)
+            throw (Exception) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new RuntimeException(failure);
+        return result;
+    }
+
+    /** a task handed to the pool, timed from publication till it starts running */
+    private class Offload implements Runnable {
+        final Task task;
+        final long start = System.nanoTime();
+        Offload(Task task) { this.task = task; }
+
+        public void run() {
+            long delta = System.nanoTime() - start;
+            numOffloaded.incrementAndGet();
+            queueNanos.addAndGet(delta);
+            for (long max; delta > (max = maxQueueNanos.get()); )
+                if (maxQueueNanos.compareAndSet(max,delta))
+                    break;
+            task.setTid(-1);
+            try { task.run(); }
+            finally {
+                if (count.decrementAndGet()==0)
+                    quiescent();
+            }
+        }
+    }
+
+    /** the pool threads aren't addressable, so the index is ignored */
+    public void schedule(int index,Task t) {
+        count.incrementAndGet();
+        pool.execute(new Offload(t));
+    }
+
+    /** the body isn't pausable so only the moves between schedulers see the timers, use the default scheduler */
+    public void scheduleTimer(Timer t) {
+        Scheduler.getDefaultScheduler().scheduleTimer(t);
+    }
+
+    public boolean isPinnable() { return false; }
+
+    public boolean isEmptyish() {
+        return pool.getQueue().isEmpty();
+    }
+
+    protected boolean isIdle() {
+        return count.get()==0;
+    }
+
+    public int numThreads() {
+        return maxThreads;
+    }
+
+    public void idledown() {
+        awaitIdle(0);
+        shutdown();
+    }
+
+    public void shutdown() {
+        super.shutdown();
+        pool.shutdown();
+        if (defaultBlocking==this)
+            defaultBlocking = null;
+    }
+
+    /** the number of calls that have run on the pool */
+    public long getOffloaded() {
+        return numOffloaded.get();
+    }
+
+    /** the number of calls that were rejected because the pool and its queue were full */
+    public long getRejected() {
+        return numRejected.get();
+    }
+
+    /** the total nanos that calls have waited for a thread */
+    public long getQueueNanos() {
+        return queueNanos.get();
+    }
+
+    /** the longest that a call has waited for a thread, in nanos */
+    public long getMaxQueueNanos() {
+        return maxQueueNanos.get();
+    }
+
+    /** the number of calls that are running or waiting for a thread */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /** the number of live threads */
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public String toString() {
+        long num = numOffloaded.get();
+        return String.format("blocking(pending %d, offloaded %d, rejected %d, queued %.1fus avg %.1fus max)",
+                pending.get(),num,numRejected.get(),
+                num==0 ? 0 : queueNanos.get()/1e3/num,maxQueueNanos.get()/1e3);
+    }
+}
@@ -0,0 +1,37 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a subscriber for a thread that blocks in one of the channels' getb or putb, on the subscriber's own monitor.
+ * an event that arrives before the wait is remembered, so the channel can register and then wait without a lost wakeup
+ */
+class BlockingSubscriber implements EventSubscriber {
+    private boolean eventRcvd;
+    private final long fin;
+
+    /** @param tom the max millis to wait in total, or zero to wait indefinitely */
+    BlockingSubscriber(long tom) {
+        fin = tom==0 ? Long.MAX_VALUE : System.currentTimeMillis() + tom;
+    }
+
+    public synchronized void onEvent(EventPublisher ep, Event e) {
+        eventRcvd = true;
+        notify();
+    }
+
+    /** wait for an event or the timeout, returning false if the timeout occurred */
+    synchronized boolean blockingWait() {
+        long current = System.currentTimeMillis();
+        while (!eventRcvd && current < fin) {
+            try {
+                wait(fin==Long.MAX_VALUE ? 0 : fin - current);
+            } catch (InterruptedException ie) {
+            }
+            current = System.currentTimeMillis();
+        }
+        boolean rcvd = eventRcvd;
+        eventRcvd = false;
+        return rcvd;
+    }
+}
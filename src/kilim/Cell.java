@@ -17,7 +17,7 @@ import kilim.concurrent.VolatileReferenceCell;
  * optimized for this size)
  */
 
-public class Cell<T> implements PauseReason, EventPublisher {
+public class Cell<T> implements Channel<T> {
     Queue<EventSubscriber>                 srcs             = new ConcurrentLinkedQueue<EventSubscriber>();
     public static final int                SPACE_AVAILABLE  = 1;
     public static final int                MSG_AVAILABLE    = 2;
@@ -134,10 +134,10 @@ public class Cell<T> implements PauseReason, EventPublisher {
         long begin = System.currentTimeMillis();
         long time = timeoutMillis;
         while (msg == null) {
-            t.timer.setTimer(time);
-            t.scheduler.scheduleTimer(t.timer);
+            t.timer().setTimer(time);
+            t.scheduler.scheduleTimer(t.timer());
             Task.pause(this);
-            t.timer.cancel();
+            t.timer().cancel();
             removeMsgAvailableListener(t);
             time = timeoutMillis - (System.currentTimeMillis() - begin);
             if (time <= 0) {
@@ -185,10 +185,10 @@ public class Cell<T> implements PauseReason, EventPublisher {
         long begin = System.currentTimeMillis();
         long time = timeoutMillis;
         while (!put(msg, t)) {
-            t.timer.setTimer(time);
-            t.scheduler.scheduleTimer(t.timer);
+            t.timer().setTimer(time);
+            t.scheduler.scheduleTimer(t.timer());
             Task.pause(this);
-            t.timer.cancel();
+            t.timer().cancel();
             removeSpaceAvailableListener(t);
             time = timeoutMillis - (System.currentTimeMillis() - begin);
             if (time <= 0) {
@@ -202,39 +202,20 @@ public class Cell<T> implements PauseReason, EventPublisher {
         putb(msg, 0 /* infinite wait */);
     }
 
-    public class BlockingSubscriber implements EventSubscriber {
-        public volatile boolean eventRcvd = false;
-        public void onEvent(EventPublisher ep, Event e) {
-            synchronized (Cell.this) {
-                eventRcvd = true;
-                Cell.this.notify();
-            }
-        }
-        public void blockingWait(final long timeoutMillis) {
-            long start = System.currentTimeMillis();
-            long remaining = timeoutMillis;
-            boolean infiniteWait = timeoutMillis == 0;
-            synchronized (Cell.this) {
-                while (!eventRcvd && (infiniteWait || remaining > 0)) {
-                    try {
-                        Cell.this.wait(infiniteWait ? 0 : remaining);
-                    } catch (InterruptedException ie) {
-                    }
-                    long elapsed = System.currentTimeMillis() - start;
-                    remaining -= elapsed;
-                }
-            }
-        }
-    }
-
-    public void putb(T msg, final long timeoutMillis) {
-        BlockingSubscriber evs = new BlockingSubscriber();
-        if (!put(msg, evs)) {
-            evs.blockingWait(timeoutMillis);
-        }
-        if (!evs.eventRcvd) {
+    /**
+     * put a non-null message in the cell, and block the calling thread for timeoutMillis
+     * if the cell is full
+     * @return true if the message was put
+     */
+    public boolean putb(T msg, final long timeoutMillis) {
+        // another producer may take the space first, so register and wait again till the put succeeds.
+        // the space may also have been freed before the registration, so check before waiting
+        BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
+        boolean success;
+        while (!(success = put(msg, evs)) && (hasSpace() || evs.blockingWait()))
             removeSpaceAvailableListener(evs);
-        }
+        removeSpaceAvailableListener(evs);
+        return success;
     }
 
     public boolean hasMessage() {
@@ -263,19 +244,12 @@ public class Cell<T> implements PauseReason, EventPublisher {
      * @return null if timed out.
      */
     public T getb(final long timeoutMillis) {
-        BlockingSubscriber evs = new BlockingSubscriber();
+        BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
         T msg;
-
-        if ((msg = get(evs)) == null) {
-            evs.blockingWait(timeoutMillis);
-            if (evs.eventRcvd) {
-                msg = get(null); // non-blocking get.
-                assert msg != null : "Received event, but message is null";
-            }
-        }
-        if (msg == null) {
+        // a producer may have put a message before the registration
+        while ((msg = get(evs)) == null && (hasMessage() || evs.blockingWait()))
             removeMsgAvailableListener(evs);
-        }
+        removeMsgAvailableListener(evs);
         return msg;
     }
 
@@ -293,4 +267,9 @@ public class Cell<T> implements PauseReason, EventPublisher {
             return false;
         }
     }
+
+    public void detach(Task t) {
+        removeMsgAvailableListener(t);
+        removeSpaceAvailableListener(t);
+    }
 }
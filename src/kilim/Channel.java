@@ -0,0 +1,66 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * the operations common to the message queues, Mailbox, MailboxMPSC, MailboxSPSC and Cell, so that call sites
+ * (and Mailbox.select) don't depend on the implementation. all of them allow a single consumer.
+ * use Channels.create to pick the cheapest implementation for a topology.
+ * the suffix "nb" stands for non-blocking and "b" for blocking the thread, and the rest pause the task
+ * @param <T> the type of the messages
+ */
+public interface Channel<T> extends Detachable, EventPublisher {
+    /**
+     * non-blocking, nonpausing get
+     * @param eo if non-null and there is no message, registers this observer and calls it when a put is done
+     * @return the message, or null
+     */
+    T get(EventSubscriber eo);
+
+    /**
+     * non-blocking, nonpausing put
+     * @param eo if non-null and there is no space, registers this observer and calls it when there is space
+     * @return true if the message was put
+     */
+    boolean put(T msg,EventSubscriber eo);
+
+    /** get a message, pausing till there is one */
+    T get() throws Pausable;
+
+    /** get a message, pausing for up to timeoutMillis, returning null on timeout */
+    T get(long timeoutMillis) throws Pausable;
+
+    T getnb();
+
+    /** get a message, blocking the thread till there is one */
+    T getb();
+
+    /** get a message, blocking the thread for up to timeoutMillis (0 for no limit), returning null on timeout */
+    T getb(long timeoutMillis);
+
+    /** put a non-null message, pausing till there is space */
+    void put(T msg) throws Pausable;
+
+    /** put a non-null message, pausing for up to timeoutMillis, returning false on timeout */
+    boolean put(T msg,int timeoutMillis) throws Pausable;
+
+    boolean putnb(T msg);
+
+    /** put a non-null message, blocking the thread till there is space */
+    void putb(T msg);
+
+    /** put a non-null message, blocking the thread for up to timeoutMillis (0 for no limit), returning false on timeout */
+    boolean putb(T msg,long timeoutMillis);
+
+    boolean hasMessage();
+
+    boolean hasSpace();
+
+    void addMsgAvailableListener(EventSubscriber msgSub);
+
+    void removeMsgAvailableListener(EventSubscriber msgSub);
+
+    void addSpaceAvailableListener(EventSubscriber spcSub);
+
+    void removeSpaceAvailableListener(EventSubscriber spcSub);
+}
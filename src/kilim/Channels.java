@@ -0,0 +1,39 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a factory for channels that picks the implementation from the declared topology, ie the number of producers
+ * and the capacity. all the implementations allow a single consumer
+ */
+public class Channels {
+    /** the number of producers that may put concurrently */
+    public enum Producers { SINGLE, MULTIPLE }
+
+    /** the capacity of a channel that grows as needed */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * create a channel
+     * <ul>
+     * <li> capacity 1 - a Cell
+     * <li> unbounded - a Mailbox, the only one that grows
+     * <li> a single producer - a MailboxSPSC, lock-free
+     * <li> multiple producers - a MailboxMPSC, lock-free
+     * </ul>
+     * the bounded queues round the capacity up to a power of two
+     * @param producers the number of producers
+     * @param capacity the max number of messages, or UNBOUNDED
+     */
+    public static <T> Channel<T> create(Producers producers,int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        if (capacity==1)
+            return new Cell<T>();
+        if (capacity==UNBOUNDED)
+            return new Mailbox<T>();
+        if (producers==Producers.SINGLE)
+            return new MailboxSPSC<T>(capacity);
+        return new MailboxMPSC<T>(capacity);
+    }
+}
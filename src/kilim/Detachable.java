@@ -0,0 +1,12 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a pause reason that holds a reference to the paused task, eg as a listener,
+ * and drops it when the task is cancelled, see Task.cancel
+ */
+public interface Detachable extends PauseReason {
+    /** forget the task, which is being unwound from its pause point */
+    void detach(Task t);
+}
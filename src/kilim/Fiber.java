@@ -40,8 +40,9 @@ public final class Fiber {
 
     /*
      * One State object for each activation frame in the call hierarchy.
+     * Sized for a shallow session, down() doubles it as needed
      */
-    private State[]            stateStack              = new State[10];
+    private State[]            stateStack              = new State[4];
 
     /*
      * Index into stateStack and equal to depth of call hierarchy - 1
@@ -57,6 +58,11 @@ public final class Fiber {
      */
     public Task                      task;
 
+    /*
+     * The back-edges left before preemptively woven code calls Task.preempt
+     */
+    public int                       budget                  = Task.preemptInterval;
+
     /*
      * Special marker state used by pause
      */
@@ -0,0 +1,100 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import java.util.concurrent.BrokenBarrierException;
+
+/**
+ * a cyclic barrier that pauses the waiting tasks instead of blocking their threads, the fiber analogue of
+ * java.util.concurrent.CyclicBarrier. the last of the parties to arrive runs the action, if any, and then
+ * resumes the others in one pass. a waiter that's cancelled, or an action that throws, breaks the generation,
+ * ie the other waiters throw BrokenBarrierException, and the barrier starts a new generation
+ */
+public class FiberBarrier implements EventPublisher {
+    private final int parties;
+    private final Runnable action;
+    // guarded by this
+    private int arrived;
+    private Gate gate = newGate();
+
+    public FiberBarrier(int parties) {
+        this(parties,null);
+    }
+
+    /**
+     * @param parties the number of tasks that must arrive to trip the barrier
+     * @param action run by the last task to arrive, before the others are resumed, or null
+     */
+    public FiberBarrier(int parties,Runnable action) {
+        if (parties < 1)
+            throw new IllegalArgumentException("parties must be positive: " + parties);
+        this.parties = parties;
+        this.action = action;
+    }
+
+    private Gate newGate() {
+        return new Gate() {
+            void abandoned() { breakGate(this); }
+        };
+    }
+
+    private void breakGate(Gate g) {
+        synchronized (this) {
+            if (gate != g)
+                return;
+            gate = newGate();
+            arrived = 0;
+        }
+        g.broken = true;
+        g.open();
+    }
+
+    /**
+     * arrive at the barrier and pause till all the parties have arrived
+     * @return the arrival index, ie parties-1 for the first to arrive and 0 for the last
+     */
+    public int await() throws Pausable, BrokenBarrierException {
+        Task t = Task.getCurrentTask();
+        Gate g;
+        int index;
+        synchronized (this) {
+            g = gate;
+            index = parties - 1 - arrived;
+            if (index==0) {
+                gate = newGate();
+                arrived = 0;
+            }
+            else {
+                arrived++;
+                g.add(t);
+            }
+        }
+        if (index==0) {
+            try {
+                if (action != null)
+                    action.run();
+            }
+            catch (RuntimeException ex) {
+                g.broken = true;
+                throw ex;
+            }
+            finally {
+                g.open();
+            }
+            return 0;
+        }
+        g.await(t,0);
+        if (g.broken)
+            throw new BrokenBarrierException();
+        return index;
+    }
+
+    public int getParties() {
+        return parties;
+    }
+
+    /** the number of parties waiting in the current generation */
+    public synchronized int getNumberWaiting() {
+        return arrived;
+    }
+}
@@ -0,0 +1,63 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a countdown latch that pauses the waiting tasks instead of blocking their threads, the fiber analogue of
+ * java.util.concurrent.CountDownLatch. the count reaching zero resumes all the waiters in one pass
+ */
+public class FiberLatch implements EventPublisher {
+    // guarded by this
+    private int count;
+    private final Gate gate = new Gate();
+
+    public FiberLatch(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        this.count = count;
+        if (count==0)
+            gate.open();
+    }
+
+    /** decrement the count, resuming the waiters if it reaches zero. no effect if it's already zero */
+    public void countDown() {
+        synchronized (this) {
+            if (count==0 || --count > 0)
+                return;
+        }
+        gate.open();
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /** pause till the count reaches zero */
+    public void await() throws Pausable {
+        await(0);
+    }
+
+    /**
+     * pause till the count reaches zero or the timeout expires
+     * @param timeoutMillis the max time to pause, or 0 for no limit
+     * @return true if the count reached zero
+     */
+    public boolean await(long timeoutMillis) throws Pausable {
+        Task t = Task.getCurrentTask();
+        return ! gate.add(t) || gate.await(t,timeoutMillis);
+    }
+
+    /** block the thread till the count reaches zero */
+    public void awaitb() {
+        gate.awaitb(0);
+    }
+
+    /** block the thread till the count reaches zero or the timeout expires, returning true if it reached zero */
+    public boolean awaitb(long timeoutMillis) {
+        return gate.awaitb(timeoutMillis);
+    }
+
+    public String toString() {
+        return "FiberLatch(" + getCount() + ")";
+    }
+}
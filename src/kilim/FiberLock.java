@@ -0,0 +1,97 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a reentrant mutual exclusion lock, owned by a task (not a thread), that pauses a contending task
+ * instead of blocking the thread, ie unlike ReentrantLock the task isn't pinned and other tasks on the thread
+ * continue to run. the lock may be held across pauses and is granted in fifo order.
+ * lock and unlock are pausable so that they find the task, and unlock never pauses
+ * <pre>
+ *     lock.lock();
+ *     try { ... }
+ *     finally { lock.unlock(); }
+ * </pre>
+ */
+public class FiberLock extends WaitQueue {
+    // guarded by this
+    private Task owner;
+    private int holds;
+
+    public void lock() throws Pausable {
+        Task t = Task.getCurrentTask();
+        Waiter w;
+        synchronized (this) {
+            if (owner==null) {
+                owner = t;
+                holds = 1;
+                return;
+            }
+            if (owner==t) {
+                holds++;
+                return;
+            }
+            enqueue(w = new Waiter(this,t,true));
+        }
+        await(w);
+    }
+
+    /** acquire the lock if it's free or already held by the task, without pausing */
+    public boolean tryLock() throws Pausable {
+        Task t = Task.getCurrentTask();
+        synchronized (this) {
+            if (owner==null)
+                owner = t;
+            else if (owner != t)
+                return false;
+            holds++;
+            return true;
+        }
+    }
+
+    public void unlock() throws Pausable {
+        Task t = Task.getCurrentTask();
+        Waiter next;
+        synchronized (this) {
+            if (owner != t)
+                throw new IllegalMonitorStateException("not the owner: " + t);
+            if (--holds > 0)
+                return;
+            next = handoff();
+        }
+        wake(next);
+    }
+
+    /** pass the lock to the first waiter, or free it */
+    private Waiter handoff() {
+        Waiter next = dequeue();
+        owner = next==null ? null : next.task;
+        holds = next==null ? 0 : 1;
+        if (next != null)
+            next.granted = true;
+        return next;
+    }
+
+    void release(Waiter w) {
+        Waiter next;
+        synchronized (this) {
+            if (owner != w.task)
+                return;
+            next = handoff();
+        }
+        wake(next);
+    }
+
+    public synchronized boolean isLocked() {
+        return owner != null;
+    }
+
+    /** the task that holds the lock, or null */
+    public synchronized Task getOwner() {
+        return owner;
+    }
+
+    public String toString() {
+        return "FiberLock(" + getOwner() + ")";
+    }
+}
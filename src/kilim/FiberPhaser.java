@@ -0,0 +1,103 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a reusable barrier with a varying number of parties that pauses the waiting tasks instead of blocking their
+ * threads, a subset of java.util.concurrent.Phaser without tiering or termination.
+ * the phase advances when the last registered party arrives, resuming the waiters of the phase in one pass
+ */
+public class FiberPhaser implements EventPublisher {
+    // guarded by this
+    private int phase;
+    private int parties;
+    private int unarrived;
+    private Gate gate = new Gate();
+
+    public FiberPhaser() {
+        this(0);
+    }
+
+    /** a phaser with a number of registered parties */
+    public FiberPhaser(int parties) {
+        if (parties < 0)
+            throw new IllegalArgumentException("parties must not be negative: " + parties);
+        this.parties = this.unarrived = parties;
+    }
+
+    /** add a party, which must arrive in the current phase, returning the phase */
+    public synchronized int register() {
+        parties++;
+        unarrived++;
+        return phase;
+    }
+
+    /** arrive without waiting, returning the phase arrived at */
+    public int arrive() {
+        return arrive(false);
+    }
+
+    /** arrive and remove a party, without waiting, returning the phase arrived at */
+    public int arriveAndDeregister() {
+        return arrive(true);
+    }
+
+    /**
+     * arrive and pause till the phase advances
+     * @return the new phase
+     */
+    public int arriveAndAwaitAdvance() throws Pausable {
+        return awaitAdvance(arrive(false));
+    }
+
+    /**
+     * pause till the phase advances past p
+     * @return the current phase, which is p+1 if p was current
+     */
+    public int awaitAdvance(int p) throws Pausable {
+        Task t = Task.getCurrentTask();
+        Gate g;
+        synchronized (this) {
+            if (phase != p)
+                return phase;
+            g = gate;
+            g.add(t);
+        }
+        g.await(t,0);
+        return p+1;
+    }
+
+    /** arrive, and advance if it's the last */
+    private int arrive(boolean deregister) {
+        Gate g = null;
+        int p;
+        synchronized (this) {
+            if (unarrived==0)
+                throw new IllegalStateException("arrivals exceed the registered parties: " + parties);
+            p = phase;
+            if (deregister)
+                parties--;
+            if (--unarrived==0) {
+                g = gate;
+                gate = new Gate();
+                phase++;
+                unarrived = parties;
+            }
+        }
+        if (g != null)
+            g.open();
+        return p;
+    }
+
+    public synchronized int getPhase() {
+        return phase;
+    }
+
+    public synchronized int getRegisteredParties() {
+        return parties;
+    }
+
+    public synchronized int getUnarrivedParties() {
+        return unarrived;
+    }
+}
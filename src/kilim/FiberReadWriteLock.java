@@ -0,0 +1,136 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a lock that is held either by any number of readers or by a single writer, and that pauses a contending task
+ * instead of blocking the thread. waiters are granted in fifo order, a writer exclusively and a run of readers
+ * together, so a stream of readers can't starve a writer.
+ * the write lock is reentrant and its owner may also take the read lock, ie downgrade.
+ * the read lock isn't reentrant - a reader that takes it again while a writer waits would deadlock
+ */
+public class FiberReadWriteLock extends WaitQueue {
+    // guarded by this
+    private int readers;
+    private Task writer;
+    private int holds;
+
+    public void lockRead() throws Pausable {
+        Task t = Task.getCurrentTask();
+        Waiter w;
+        synchronized (this) {
+            if (writer==t || (writer==null && head==null)) {
+                readers++;
+                return;
+            }
+            enqueue(w = new Waiter(this,t,false));
+        }
+        await(w);
+    }
+
+    public synchronized boolean tryLockRead() {
+        if (writer != null || head != null)
+            return false;
+        readers++;
+        return true;
+    }
+
+    public void unlockRead() {
+        Waiter next;
+        synchronized (this) {
+            if (readers==0)
+                throw new IllegalMonitorStateException("read lock not held");
+            if (--readers > 0 || writer != null)
+                return;
+            next = grant();
+        }
+        wake(next);
+    }
+
+    public void lockWrite() throws Pausable {
+        Task t = Task.getCurrentTask();
+        Waiter w;
+        synchronized (this) {
+            if (writer==t) {
+                holds++;
+                return;
+            }
+            if (writer==null && readers==0 && head==null) {
+                writer = t;
+                holds = 1;
+                return;
+            }
+            enqueue(w = new Waiter(this,t,true));
+        }
+        await(w);
+    }
+
+    public boolean tryLockWrite() throws Pausable {
+        Task t = Task.getCurrentTask();
+        synchronized (this) {
+            if (writer==null && readers==0 && head==null)
+                writer = t;
+            else if (writer != t)
+                return false;
+            holds++;
+            return true;
+        }
+    }
+
+    public void unlockWrite() throws Pausable {
+        unlockWrite(Task.getCurrentTask());
+    }
+
+    private void unlockWrite(Task t) {
+        Waiter next;
+        synchronized (this) {
+            if (writer != t)
+                throw new IllegalMonitorStateException("not the writer: " + t);
+            if (--holds > 0)
+                return;
+            writer = null;
+            // a downgraded writer still holds the read lock
+            if (readers > 0)
+                return;
+            next = grant();
+        }
+        wake(next);
+    }
+
+    /** grant the first waiter if it's a writer, or else the run of readers at the head, returning the chain */
+    private Waiter grant() {
+        Waiter first = head;
+        if (first==null)
+            return null;
+        if (first.exclusive) {
+            dequeue();
+            writer = first.task;
+            holds = 1;
+            first.granted = true;
+            return first;
+        }
+        Waiter last = null;
+        while (head != null && ! head.exclusive) {
+            Waiter w = dequeue();
+            readers++;
+            w.granted = true;
+            if (last != null) last.next = w;
+            last = w;
+        }
+        return first;
+    }
+
+    void release(Waiter w) {
+        if (w.exclusive) unlockWrite(w.task);
+        else unlockRead();
+    }
+
+    /** the number of readers that hold the lock */
+    public synchronized int getReadLockCount() {
+        return readers;
+    }
+
+    public synchronized boolean isWriteLocked() {
+        return writer != null;
+    }
+}
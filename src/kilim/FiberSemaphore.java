@@ -0,0 +1,64 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * a counting semaphore that pauses a task that finds no permits, instead of blocking the thread.
+ * permits are granted in fifo order and, as with java.util.concurrent.Semaphore, aren't owned,
+ * ie any task or thread may release
+ */
+public class FiberSemaphore extends WaitQueue {
+    // guarded by this
+    private int permits;
+
+    public FiberSemaphore(int permits) {
+        this.permits = permits;
+    }
+
+    /** take a permit, pausing till one is available */
+    public void acquire() throws Pausable {
+        Task t = Task.getCurrentTask();
+        Waiter w;
+        synchronized (this) {
+            if (permits > 0) {
+                permits--;
+                return;
+            }
+            enqueue(w = new Waiter(this,t,true));
+        }
+        await(w);
+    }
+
+    /** take a permit if one is available, without pausing */
+    public synchronized boolean tryAcquire() {
+        if (permits <= 0)
+            return false;
+        permits--;
+        return true;
+    }
+
+    /** return a permit, passing it directly to the first waiter if there is one */
+    public void release() {
+        Waiter next;
+        synchronized (this) {
+            next = dequeue();
+            if (next==null)
+                permits++;
+            else
+                next.granted = true;
+        }
+        wake(next);
+    }
+
+    void release(Waiter w) {
+        release();
+    }
+
+    public synchronized int availablePermits() {
+        return permits;
+    }
+
+    public String toString() {
+        return "FiberSemaphore(" + availablePermits() + ")";
+    }
+}
@@ -4,6 +4,7 @@ import java.lang.reflect.Method;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicInteger;
+import kilim.concurrent.WeightedQueue;
 import kilim.timerservice.Timer;
 import kilim.timerservice.TimerService;
 
@@ -21,11 +22,30 @@ public class ForkJoinScheduler extends Scheduler
     ForkJoinPool pool;
     private TimerService timerService;
     private AtomicInteger count = new AtomicInteger(0);
+    /**
+     * the runnable tasks by priority class, the pool has no notion of priority so each publish forks a token
+     * and the token runs the next task by weight. the queue is locked and the token doesn't run the task
+     * it was forked for (ie no locality), so it's only used once a task with a priority other than normal
+     * is seen, and till then each task is forked directly
+     */
+    private WeightedQueue<Runnable> ready = new WeightedQueue<Runnable>(0,priorityWeights) {
+        protected int level(Runnable runnable) { return priority(runnable); }
+    };
+    private volatile boolean weighted;
 
     public ForkJoinScheduler(int numThreads) {
+        this(numThreads,false);
+    }
+
+    /**
+     * @param numThreads the parallelism, or less than zero for the default
+     * @param weighted drain by priority from the start, rather than once a task with a priority is seen
+     */
+    public ForkJoinScheduler(int numThreads,boolean weighted) {
         numThreads = numThreads >= 0 ? numThreads : Scheduler.defaultNumberThreads;
         pool = new ForkJoinPool(numThreads);
         timerService = new TimerService(this);
+        this.weighted = weighted;
     }
 
     public void publish(TimerService.WatchdogTask dog) {
@@ -44,8 +64,12 @@ public class ForkJoinScheduler extends Scheduler
      }
     public void publish(Runnable task) {
         ForkJoinPool current = ForkJoinTask.getPool();
-        ForkedRunnable fajita = new ForkedRunnable(task);
+        if (! weighted && priority(task) != Task.PRIORITY_NORMAL)
+            weighted = true;
+        ForkedRunnable fajita = new ForkedRunnable(weighted ? null : task);
         count.incrementAndGet();
+        if (fajita.task==null)
+            ready.offer(task);
         if (current==pool)
             fajita.fork();
         else
@@ -53,7 +77,7 @@ public class ForkJoinScheduler extends Scheduler
     }
 
     public boolean isEmptyish() {
-        return ! pool.hasQueuedSubmissions();
+        return ! pool.hasQueuedSubmissions() && (! weighted || ready.isEmpty());
     }
 
     public int numThreads() {
@@ -65,31 +89,32 @@ public class ForkJoinScheduler extends Scheduler
     }
 
     public void idledown() {
-        while (!Thread.interrupted())
-            if (waitIdle(100)) return;
+        awaitIdle(0);
     }
     public boolean waitIdle(int delay) {
-        // avoid the java 8 feature to simplify the java 7 build
-        // if (! pool.awaitQuiescence(delay,java.util.concurrent.TimeUnit.MILLISECONDS)) return false;
-        if (! isEmpty())
-            return false;
-        if (timerService.isEmptyLazy(this))
-            return true;
-        try { Thread.sleep(delay); } catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
-        return false;
+        return awaitIdle(delay);
+    }
+    protected boolean isIdle() {
+        return resolved(timerService,this);
     }
 
     final class ForkedRunnable<V> extends ForkJoinTask<V> {
-        Runnable task;
-        public ForkedRunnable(Runnable task) { this.task = task; }
+        /** the task to run, or null for a token that runs the next task from ready */
+        final Runnable task;
+        ForkedRunnable(Runnable task) { this.task = task; }
         public V getRawResult() { return null; }
         protected void setRawResult(V value) {}
         protected boolean exec() {
             // generally would Task.setTid here, but they can't be pinned and non-pool threads can participate
             //   so skip it
-            task.run();
+            // each token has a task in ready, but not necessarily the one it was forked for
+            if (task != null)
+                task.run();
+            else
+                ready.poll().run();
             timerService.trigger(ForkJoinScheduler.this);
-            count.decrementAndGet();
+            if (count.decrementAndGet()==0)
+                quiescent();
             return true;
         }
     }
@@ -98,19 +123,19 @@ public class ForkJoinScheduler extends Scheduler
         pool.shutdown();
         timerService.shutdown();
     }
-    private static String[] processArgs(String[] args,int offset) {
+    static String[] processArgs(String[] args,int offset) {
         String[] ret = new String[args.length-offset];
         if (ret.length > 0) 
             System.arraycopy(args, offset, ret, 0, ret.length);
         return ret;
     }
-    private static Integer parseNum(String [] args,int index) {
+    static Integer parseNum(String [] args,int index) {
         try {
             return Integer.parseInt(args[index]);
         }
         catch (Throwable ex) { return null; }
     }
-    private static void run(String className,String method,String ... args) throws Exception {
+    static void run(String className,String method,String ... args) throws Exception {
         Class<?> mainClass = ForkJoinScheduler.class.getClassLoader().loadClass(className);
         Method mainMethod = mainClass.getMethod(method, new Class[]{String[].class});
         mainMethod.invoke(null,new Object[] {args});
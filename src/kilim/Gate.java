@@ -0,0 +1,98 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * the tasks (and threads) waiting for a generation of a FiberLatch, FiberBarrier or FiberPhaser.
+ * the gate opens once, resuming all of its tasks in a single pass outside any lock, and a later generation
+ * uses a new gate, so a task that's slow to resume can't miss the opening or see the next one
+ */
+class Gate implements Detachable {
+    // guarded by this
+    private Task [] tasks = new Task[4];
+    private int num;
+    volatile boolean open;
+    /** the generation was broken, eg by a cancelled waiter, rather than completed */
+    volatile boolean broken;
+
+    /** add a task to be resumed when the gate opens, returning false if it's already open */
+    synchronized boolean add(Task t) {
+        if (open)
+            return false;
+        if (num==tasks.length) {
+            Task [] grown = new Task[2*num];
+            System.arraycopy(tasks,0,grown,0,num);
+            tasks = grown;
+        }
+        tasks[num++] = t;
+        return true;
+    }
+
+    private synchronized boolean remove(Task t) {
+        for (int ii=0; ii < num; ii++)
+            if (tasks[ii]==t) {
+                tasks[ii] = tasks[--num];
+                tasks[num] = null;
+                return true;
+            }
+        return false;
+    }
+
+    /** open the gate and resume the waiters, called outside the owner's lock */
+    void open() {
+        Task [] waiters;
+        int n;
+        synchronized (this) {
+            if (open)
+                return;
+            open = true;
+            waiters = tasks;
+            n = num;
+            tasks = null;
+            num = 0;
+            notifyAll();
+        }
+        for (int ii=0; ii < n; ii++)
+            waiters[ii].resume();
+    }
+
+    /**
+     * pause the task, which has already been added, till the gate opens or the timeout expires
+     * @param timeoutMillis the max time to pause, or 0 for no limit
+     * @return true if the gate opened
+     */
+    boolean await(Task t,long timeoutMillis) throws Pausable {
+        if (timeoutMillis > 0) {
+            t.timer().setTimer(timeoutMillis);
+            t.scheduler.scheduleTimer(t.timer());
+        }
+        while (! open && ! t.checkTimeout())
+            Task.pause(this);
+        if (timeoutMillis > 0)
+            t.timer().cancel();
+        if (! open)
+            remove(t);
+        return open;
+    }
+
+    /** block the thread till the gate opens or the timeout expires, returning true if it opened */
+    synchronized boolean awaitb(long timeoutMillis) {
+        long fin = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+        for (long now = System.currentTimeMillis(); ! open && now < fin; now = System.currentTimeMillis())
+            try { wait(fin==Long.MAX_VALUE ? 0 : fin-now); }
+            catch (InterruptedException ex) { throw new RuntimeException(ex); }
+        return open;
+    }
+
+    public boolean isValid(Task t) {
+        return ! open && ! t.checkTimeout();
+    }
+
+    public void detach(Task t) {
+        if (remove(t))
+            abandoned();
+    }
+
+    /** a waiting task was cancelled */
+    void abandoned() {}
+}
@@ -6,6 +6,7 @@
 
 package kilim;
 
+import java.util.Collection;
 import java.util.LinkedList;
 
 /**
@@ -20,7 +21,7 @@ import java.util.LinkedList;
  * non-blocking variants in the form of putb(), putnb
  */
 
-public class Mailbox<T> implements PauseReason, EventPublisher {
+public class Mailbox<T> implements Channel<T> {
     // TODO. Give mbox a config name and id and make monitorable
     T[] msgs;
     private int iprod = 0; // producer index
@@ -151,6 +152,166 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
         return ret;
     }
     
+    /**
+     * Non-blocking, nonpausing batch get, ie take up to max messages under a single lock and
+     * wake a waiting producer per message taken.
+     * @param c the collection to add the messages to, or null to store them in buf
+     * @param buf the array to store the messages in, from index 0, with room for max
+     * @param eo. If non-null, registers this observer (as for get) if there are no messages
+     * @return the number of messages taken
+     */
+    @SuppressWarnings("unchecked")
+    private int drain(Collection<? super T> c, T[] buf, int max, EventSubscriber eo) {
+        if (max < 1)
+            throw new IllegalArgumentException("max must be positive: " + max);
+        if (c == null && max > buf.length)
+            throw new IllegalArgumentException("max exceeds the buffer length: " + max + " > " + buf.length);
+        EventSubscriber [] producers = null;
+        int k;
+        synchronized(this) {
+            k = Math.min(numMsgs, max);
+            if (k == 0) {
+                if (eo != null)
+                    addMsgAvailableListener(eo);
+                return 0;
+            }
+            // the collection is foreign code that may throw, so copy out and add after releasing the lock
+            if (c != null)
+                buf = (T[]) new Object[k];
+            int ic = icons, len = msgs.length;
+            for (int ii = 0; ii < k; ii++) {
+                buf[ii] = msgs[ic];
+                msgs[ic] = null;
+                if (++ic == len) ic = 0;
+            }
+            icons = ic;
+            numMsgs -= k;
+            int np = Math.min(k, srcs.size());
+            if (np > 0) {
+                producers = new EventSubscriber[np];
+                for (int ii = 0; ii < np; ii++)
+                    producers[ii] = srcs.poll();
+            }
+        }
+        if (producers != null)
+            for (EventSubscriber producer : producers)
+                producer.onEvent(this, spaceAvailble);
+        if (c != null)
+            for (int ii = 0; ii < k; ii++)
+                c.add(buf[ii]);
+        return k;
+    }
+
+    /**
+     * take the available messages, up to max, adding them to the collection, and pause till
+     * there's at least one
+     * @return the number of messages taken, at least one
+     */
+    public int drainTo(Collection<? super T> c, int max) throws Pausable {
+        Task t = Task.getCurrentTask();
+        int n = drain(c, null, max, t);
+        while (n == 0) {
+            Task.pause(this);
+            removeMsgAvailableListener(t);
+            n = drain(c, null, max, t);
+        }
+        return n;
+    }
+
+    /**
+     * take the available messages, up to max, storing them in buf from index 0, and pause till
+     * there's at least one
+     * @return the number of messages taken, at least one
+     */
+    public int drainTo(T[] buf, int max) throws Pausable {
+        Task t = Task.getCurrentTask();
+        int n = drain(null, buf, max, t);
+        while (n == 0) {
+            Task.pause(this);
+            removeMsgAvailableListener(t);
+            n = drain(null, buf, max, t);
+        }
+        return n;
+    }
+
+    /**
+     * take the available messages, up to max, adding them to the collection. doesn't pause or block
+     * @return the number of messages taken
+     */
+    public int drainTonb(Collection<? super T> c, int max) {
+        return drain(c, null, max, null);
+    }
+
+    /**
+     * Non-blocking, nonpausing batch put of batch[from,to) under a single lock, waking the consumer once.
+     * @param eo. If non-null, registers this observer (as for put) if the messages don't all fit
+     * @return the number of messages put, ie a prefix of the range
+     */
+    @SuppressWarnings("unchecked")
+    private int put(T[] batch, int from, int to, EventSubscriber eo) {
+        for (int ii = from; ii < to; ii++)
+            if (batch[ii] == null)
+                throw new NullPointerException("Null message supplied to putAll");
+        int k;
+        EventSubscriber subscriber = null;
+        synchronized(this) {
+            int n = numMsgs;
+            int want = (int) Math.min((long) n + to - from, maxMsgs);
+            if (want > msgs.length) {
+                int ic = icons;
+                T[] newmsgs = (T[]) new Object[Math.max(want, (int) Math.min(2L * msgs.length, maxMsgs))];
+                int head = Math.min(n, msgs.length - ic);
+                System.arraycopy(msgs, ic, newmsgs, 0, head);
+                System.arraycopy(msgs, 0, newmsgs, head, n - head);
+                msgs = newmsgs;
+                icons = 0;
+                iprod = n;
+            }
+            k = want - n;
+            int ip = iprod, len = msgs.length;
+            for (int ii = 0; ii < k; ii++) {
+                msgs[ip] = batch[from + ii];
+                if (++ip == len) ip = 0;
+            }
+            iprod = ip;
+            numMsgs = want;
+            if (k > 0) {
+                subscriber = sink;
+                sink = null;
+            }
+            if (k < to - from && eo != null)
+                srcs.add(eo);
+        }
+        if (subscriber != null)
+            subscriber.onEvent(this, messageAvailable);
+        return k;
+    }
+
+    /** put the non-null messages in the mailbox, in order, pausing while the mailbox is full */
+    public void putAll(T[] batch) throws Pausable {
+        Task t = Task.getCurrentTask();
+        int done = put(batch, 0, batch.length, t);
+        while (done < batch.length) {
+            Task.pause(this);
+            removeSpaceAvailableListener(t);
+            done += put(batch, done, batch.length, t);
+        }
+    }
+
+    /** put the non-null messages in the mailbox, in iteration order, pausing while the mailbox is full */
+    @SuppressWarnings("unchecked")
+    public void putAll(Collection<? extends T> batch) throws Pausable {
+        putAll((T[]) batch.toArray());
+    }
+
+    /**
+     * put as many of the messages as fit, in order, without pausing or blocking
+     * @return the number of messages put
+     */
+    public int putAllnb(T[] batch) {
+        return put(batch, 0, batch.length, null);
+    }
+
     /**
      * Get, don't pause or block.
      * 
@@ -186,10 +347,10 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
         long begin = System.currentTimeMillis();
         long time = timeoutMillis;
         while (msg == null) {
-            t.timer.setTimer(time);
-            t.scheduler.scheduleTimer(t.timer);
+            t.timer().setTimer(time);
+            t.scheduler.scheduleTimer(t.timer());
             Task.pause(this);
-            t.timer.cancel();
+            t.timer().cancel();
             removeMsgAvailableListener(t);
             time = timeoutMillis - (System.currentTimeMillis() - begin);
             if (time <= 0) {
@@ -307,10 +468,17 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
      * Takes an array of mailboxes and returns the index of the first mailbox
      * that has a message. It is possible that because of race conditions, an
      * earlier mailbox in the list may also have received a message.
+     * see Select for a reusable and fair select, with a timeout, that can also wait on timers and sockets
      */
-    // TODO: need timeout variant
-    @SuppressWarnings("unchecked")
     public static int select(Mailbox... mboxes) throws Pausable {
+        return select((Channel[]) mboxes);
+    }
+
+    /**
+     * Takes an array of channels, of any implementation, and returns the index of the first one
+     * that has a message, pausing till there is one.
+     */
+    public static int select(Channel... mboxes) throws Pausable {
         while (true) {
             for (int i = 0; i < mboxes.length; i++) {
                 if (mboxes[i].hasMessage()) {
@@ -385,10 +553,10 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
         long begin = System.currentTimeMillis();
         long time = timeoutMillis;
         while (!put(msg,t)) {
-            t.timer.setTimer(time);
-            t.scheduler.scheduleTimer(t.timer);
+            t.timer().setTimer(time);
+            t.scheduler.scheduleTimer(t.timer());
             Task.pause(this);
-            t.timer.cancel();
+            t.timer().cancel();
             removeSpaceAvailableListener(t);
             time = timeoutMillis-(System.currentTimeMillis()-begin);
             if (time<=0)
@@ -401,44 +569,6 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
         putb(msg, 0 /* infinite wait */);
     }
 
-    public class BlockingSubscriber implements EventSubscriber {
-        public volatile boolean eventRcvd = false;
-        private long current = -1;
-        private long tom;
-        private long start = 0;
-
-        public BlockingSubscriber(long tom) {
-            this.tom = tom;
-            if (tom > 0)
-                start = current = System.currentTimeMillis();
-        }
-        
-        public void onEvent(EventPublisher ep, Event e) {
-            synchronized (Mailbox.this) {
-                eventRcvd = true;
-                Mailbox.this.notify();
-            }
-        }
-        /** wait for either a timeout or event, returning true if the timeout occurred */        
-        public boolean blockingWait() {
-            long fin = start + tom;
-            synchronized (Mailbox.this) {
-                while (!eventRcvd && current < fin) {
-                    try {
-                        Mailbox.this.wait(tom==0 ? 0 : fin-current);
-                    }
-                    catch (InterruptedException ie) {}
-                    if (tom > 0)
-                        current = System.currentTimeMillis();
-                }
-                if (!eventRcvd)
-                    removeSpaceAvailableListener(this);
-            }
-            return current < fin;
-        }
-    }
-    
-    
     /**
      * put a non-null message in the mailbox, and block the calling thread for timeoutMillis
      * if the mailbox is full
@@ -447,7 +577,9 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
     public boolean putb(T msg,long timeoutMillis) {
         BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
         boolean success;
-        while (!(success = put(msg, evs)) && evs.blockingWait()) {}
+        while (!(success = put(msg, evs)) && evs.blockingWait())
+            removeSpaceAvailableListener(evs);
+        removeSpaceAvailableListener(evs);
         return success;
     }
 
@@ -482,7 +614,9 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
     public T getb(final long timeoutMillis) {
         BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
         T msg;
-        while ((msg = get(evs))==null && evs.blockingWait()) {}
+        while ((msg = get(evs))==null && evs.blockingWait())
+            removeMsgAvailableListener(evs);
+        removeMsgAvailableListener(evs);
         return msg;
     }
 
@@ -501,13 +635,18 @@ public class Mailbox<T> implements PauseReason, EventPublisher {
             return ((t == sink) || srcs.contains(t)) && ! t.checkTimeout();
         }
     }
+
+    public void detach(Task t) {
+        removeMsgAvailableListener(t);
+        removeSpaceAvailableListener(t);
+    }
 }
 
-class EmptySet_MsgAvListener implements PauseReason, EventSubscriber {
+class EmptySet_MsgAvListener implements Detachable, EventSubscriber {
     final Task task;
-    final Mailbox<?>[] mbxs;
+    final Channel<?>[] mbxs;
 
-    EmptySet_MsgAvListener(Task t, Mailbox<?>[] mbs) {
+    EmptySet_MsgAvListener(Task t, Channel<?>[] mbs) {
         task = t;
         mbxs = mbs;
     }
@@ -515,7 +654,7 @@ class EmptySet_MsgAvListener implements PauseReason, EventSubscriber {
     public boolean isValid(Task t) {
         // The pauseReason is true (there is valid reason to continue
         // pausing) if none of the mboxes have any elements
-        for (Mailbox<?> mb : mbxs) {
+        for (Channel<?> mb : mbxs) {
             if (mb.hasMessage())
                 return false;
         }
@@ -523,17 +662,21 @@ class EmptySet_MsgAvListener implements PauseReason, EventSubscriber {
     }
 
     public void onEvent(EventPublisher ep, Event e) {
-        for (Mailbox<?> m : mbxs) {
+        for (Channel<?> m : mbxs) {
             if (m != ep) {
-                ((Mailbox<?>)ep).removeMsgAvailableListener(this);
+                ((Channel<?>)ep).removeMsgAvailableListener(this);
             }
         }
         task.resume();
     }
 
     public void cancel() {
-        for (Mailbox<?> mb : mbxs) {
+        for (Channel<?> mb : mbxs) {
             mb.removeMsgAvailableListener(this);
         }
     }
+
+    public void detach(Task t) {
+        cancel();
+    }
 }
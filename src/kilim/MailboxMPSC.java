@@ -13,10 +13,15 @@ import kilim.concurrent.MPSCQueue;
 import kilim.concurrent.VolatileReferenceCell;
 
 /**
- * This is a typed buffer that supports single producers and a single consumer.
- * It is the basic construct used for tasks to interact and synchronize with
- * each other (as opposed to direct java calls or static member variables).
- * put() and get() are the two essential functions.
+ * A lock-free drop-in for Mailbox for the case of many producers and a single
+ * consumer, with the same pausable, blocking and non-blocking API (but no
+ * select, peek or remove). Messages are held in a padded MPSCQueue, ie a ring
+ * whose capacity is rounded up to a power of two and indexed by masking, that
+ * producers claim slots in with a CAS. The consumer registers as the sink with
+ * a CAS and producers that find the ring full wait in a lock-free queue, so
+ * neither side ever takes the mailbox monitor (only the thread-blocking
+ * variants wait on a monitor, of their own). Unlike Mailbox the capacity is
+ * fixed.
  * 
  * We use the term "block" to mean thread block, and "pause" to mean fiber
  * pausing. The suffix "nb" on some methods (such as getnb()) stands for
@@ -24,16 +29,13 @@ import kilim.concurrent.VolatileReferenceCell;
  * the form of putb(), putnb
  */
 
-public class MailboxMPSC<T> implements PauseReason, EventPublisher {
+public class MailboxMPSC<T> implements Channel<T> {
 	// TODO. Give mbox a config name and id and make monitorable
 
-        MPSCQueue<T> msgs;
-    
-	VolatileReferenceCell<EventSubscriber> sink = new VolatileReferenceCell<EventSubscriber>
-            ();
-	Queue
-            <EventSubscriber> srcs = new 
-                ConcurrentLinkedQueue<EventSubscriber>();
+	MPSCQueue<T> msgs;
+
+	VolatileReferenceCell<EventSubscriber> sink = new VolatileReferenceCell<EventSubscriber>();
+	Queue<EventSubscriber> srcs = new ConcurrentLinkedQueue<EventSubscriber>();
 
 	// FIX: I don't like this event design. The only good thing is that
 	// we don't create new event objects every time we signal a client
@@ -42,23 +44,21 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 	public static final int MSG_AVAILABLE = 2;
 	public static final int TIMED_OUT = 3;
 
-        public static final Event spaceAvailble = new Event(SPACE_AVAILABLE);
-        public static final Event messageAvailable = new Event(MSG_AVAILABLE);
+	public static final Event spaceAvailble = new Event(SPACE_AVAILABLE);
+	public static final Event messageAvailable = new Event(MSG_AVAILABLE);
 	public static final Event timedOut = new Event(TIMED_OUT);
 
-	// DEBUG steuuff
-	// To do: move into monitorable stat object
-	/*
-	 * public int nPut = 0; public int nGet = 0; public int nWastedPuts = 0;
-	 * public int nWastedGets = 0;
-	 */
 	public MailboxMPSC() {
 		this(10);
 	}
 
+	/**
+	 * @param capacity
+	 *            the max number of messages, rounded up to a power of two
+	 */
 	@SuppressWarnings("unchecked")
-	public MailboxMPSC(int initialSize) {
-		msgs = new MPSCQueue(initialSize);
+	public MailboxMPSC(int capacity) {
+		msgs = new MPSCQueue(capacity);
 	}
 
 	/**
@@ -70,17 +70,22 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 	 * @return buffered message if there's one, or null
 	 */
 	public T get(EventSubscriber eo) {
-		EventSubscriber producer = null;
 		T e = msgs.poll();
 		if (e == null) {
-			if (eo != null) {
-				addMsgAvailableListener(eo);
-			}
+			if (eo == null)
+				return null;
+			addMsgAvailableListener(eo);
+			// a put that raced the registration may have missed the sink, so
+			// look again. the queue store and the sink load are both volatile
+			e = msgs.poll();
+			if (e == null)
+				return null;
+			removeMsgAvailableListener(eo);
 		}
-
-		producer = getProducer();
-		if (producer != null) {
-			producer.onEvent(this, spaceAvailble);
+		if (!srcs.isEmpty()) {
+			EventSubscriber producer = srcs.poll();
+			if (producer != null)
+				producer.onEvent(this, spaceAvailble);
 		}
 		return e;
 	}
@@ -89,18 +94,20 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 		if (msg == null) {
 			throw new NullPointerException("Null is not a valid element");
 		}
-		EventSubscriber subscriber;
 		boolean b = msgs.offer(msg);
-		if (!b) {
-			if (eo != null) {
-				addSpaceAvailableListener(eo);
-			}
+		if (!b && eo != null) {
+			addSpaceAvailableListener(eo);
+			// the consumer may have made space before the registration
+			b = msgs.offer(msg);
+			if (b)
+				removeSpaceAvailableListener(eo);
 		}
-		subscriber = sink.getAndSet(null);
-		if (subscriber != null) {
-			subscriber.onEvent(this, messageAvailable);
+		// only pay for the exchange when there's a consumer waiting
+		if (b && sink.get() != null) {
+			EventSubscriber subscriber = sink.getAndSet(null);
+			if (subscriber != null)
+				subscriber.onEvent(this, messageAvailable);
 		}
-
 		return b;
 	}
 
@@ -138,10 +145,10 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 		long begin = System.currentTimeMillis();
 		long time = timeoutMillis;
 		while (msg == null) {
-			t.timer.setTimer(time);
-			t.scheduler.scheduleTimer(t.timer);
+			t.timer().setTimer(time);
+			t.scheduler.scheduleTimer(t.timer());
 			Task.pause(this);
-			t.timer.cancel();
+			t.timer().cancel();
 			removeMsgAvailableListener(t);
 			time = timeoutMillis - (System.currentTimeMillis() - begin);
 			if (time <= 0) {
@@ -151,7 +158,29 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 		}
 		return msg;
 	}
-        /**
+
+	/**
+	 * Pause the caller until at least one message is available.
+	 */
+	public void untilHasMessage() throws Pausable {
+		Task t = Task.getCurrentTask();
+		while (!hasMessage(t)) {
+			Task.pause(this);
+			removeMsgAvailableListener(t);
+		}
+	}
+
+	public boolean hasMessage(Task eo) {
+		if (!msgs.isEmpty())
+			return true;
+		addMsgAvailableListener(eo);
+		if (msgs.isEmpty())
+			return false;
+		removeMsgAvailableListener(eo);
+		return true;
+	}
+
+	/**
 	 * Attempt to put a message, and return true if successful. The thread is
 	 * not blocked, nor is the task paused under any circumstance.
 	 */
@@ -159,38 +188,29 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 		return put(msg, null);
 	}
 
-        synchronized         
 	public void addSpaceAvailableListener(EventSubscriber spcSub) {
 		srcs.offer(spcSub);
 	}
-        synchronized 
+
 	public void removeSpaceAvailableListener(EventSubscriber spcSub) {
 		srcs.remove(spcSub);
 	}
-        synchronized 
+
 	public void addMsgAvailableListener(EventSubscriber msgSub) {
-		sink.set(msgSub);
+		if (!sink.compareAndSet(null, msgSub) && sink.get() != msgSub) {
+			throw new AssertionError("Error: A mailbox can not be shared by two consumers.  New = "
+					+ msgSub + ", Old = " + sink);
+		}
 	}
-        synchronized 
+
 	public void removeMsgAvailableListener(EventSubscriber msgSub) {
-		sink.set(null);
+		sink.compareAndSet(msgSub, null);
 	}
-        private EventSubscriber getProducer() {
-            return srcs.poll();
-        }
-        private boolean srcContains(Task t) {
-            return srcs.contains(t);
-        }
-        private long getSize() {
-            return msgs.size();
-        }
-
 
 	/**
 	 * put a non-null message in the mailbox, and pause the calling task until
 	 * the mailbox has space
 	 */
-
 	public void put(T msg) throws Pausable {
 		Task t = Task.getCurrentTask();
 		while (!put(msg, t)) {
@@ -203,16 +223,15 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 	 * put a non-null message in the mailbox, and pause the calling task for
 	 * timeoutMillis if the mailbox is full.
 	 */
-
 	public boolean put(T msg, int timeoutMillis) throws Pausable {
 		final Task t = Task.getCurrentTask();
 		long begin = System.currentTimeMillis();
 		long time = timeoutMillis;
 		while (!put(msg, t)) {
-			t.timer.setTimer(time);
-			t.scheduler.scheduleTimer(t.timer);
+			t.timer().setTimer(time);
+			t.scheduler.scheduleTimer(t.timer());
 			Task.pause(this);
-			t.timer.cancel();
+			t.timer().cancel();
 			removeSpaceAvailableListener(t);
 			time = timeoutMillis - (System.currentTimeMillis() - begin);
 			if (time <= 0) {
@@ -222,40 +241,85 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 		return true;
 	}
 
+	public void putb(T msg) {
+		putb(msg, 0 /* infinite wait */);
+	}
 
+	/**
+	 * put a non-null message in the mailbox, and block the calling thread for
+	 * timeoutMillis if the mailbox is full
+	 * 
+	 * @return true if the message was successfully put in the mailbox
+	 */
+	public boolean putb(T msg, long timeoutMillis) {
+		BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
+		boolean success;
+		while (!(success = put(msg, evs)) && evs.blockingWait()) {
+			removeSpaceAvailableListener(evs);
+		}
+		removeSpaceAvailableListener(evs);
+		return success;
+	}
 
+	/**
+	 * retrieve a message, blocking the thread indefinitely. Note, this is a
+	 * heavyweight block, unlike #get() that pauses the Fiber but doesn't block
+	 * the thread.
+	 */
+	public T getb() {
+		return getb(0);
+	}
 
-        
-        
-        
+	/**
+	 * retrieve a msg, and block the Java thread for the time given.
+	 * 
+	 * @param millis
+	 *            . max wait time
+	 * @return null if timed out.
+	 */
+	public T getb(final long timeoutMillis) {
+		BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
+		T msg;
+		while ((msg = get(evs)) == null && evs.blockingWait()) {
+			removeMsgAvailableListener(evs);
+		}
+		removeMsgAvailableListener(evs);
+		return msg;
+	}
+
+	public int size() {
+		return msgs.size();
+	}
 
+	public boolean hasMessage() {
+		return !msgs.isEmpty();
+	}
 
-        
-        
-        
-        public synchronized String toString() {
-		return "id:" + System.identityHashCode(this) + " " +
-				"numMsgs:" + getSize();
+	public boolean hasSpace() {
+		return msgs.hasSpace();
 	}
 
-        
-        
-        
-        
-        
+	public String toString() {
+		return "id:" + System.identityHashCode(this) + " " + "numMsgs:" + size();
+	}
 
-        synchronized 
-        // Implementation of PauseReason
+	// Implementation of PauseReason
 	public boolean isValid(Task t) {
 		if (t == sink.get()) {
 			return msgs.isEmpty();
-		} else if (srcContains(t)) {
+		} else if (srcs.contains(t)) {
 			return !msgs.hasSpace();
 		} else {
 			return false;
 		}
 	}
 
+	public void detach(Task t) {
+		// the sink is only cleared for the consumer itself, not for a producer
+		removeMsgAvailableListener(t);
+		removeSpaceAvailableListener(t);
+	}
+
 	public void fill(T[] msg) {
 		for (int i = 0; i < msg.length; i++) {
 			msg[i] = getnb();
@@ -266,4 +330,3 @@ public class MailboxMPSC<T> implements PauseReason, EventPublisher {
 	}
 
 }
-
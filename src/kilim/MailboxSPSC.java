@@ -22,8 +22,7 @@ import kilim.concurrent.VolatileReferenceCell;
  * the form of putb(), putnb
  */
 
-public class MailboxSPSC<T> implements PauseReason,
-		EventPublisher {
+public class MailboxSPSC<T> implements Channel<T> {
 	// TODO. Give mbox a config name and id and make monitorable
 
         SPSCQueue<T> msgs;
@@ -166,10 +165,10 @@ public class MailboxSPSC<T> implements PauseReason,
 		long begin = System.currentTimeMillis();
 		long time = timeoutMillis;
 		while (msg == null) {
-			t.timer.setTimer(time);
-			t.scheduler.scheduleTimer(t.timer);
+			t.timer().setTimer(time);
+			t.scheduler.scheduleTimer(t.timer());
 			Task.pause(this);
-			t.timer.cancel();
+			t.timer().cancel();
 			removeMsgAvailableListener(t);
 			time = timeoutMillis - (System.currentTimeMillis() - begin);
 			if (time <= 0) {
@@ -237,10 +236,10 @@ public class MailboxSPSC<T> implements PauseReason,
 		long begin = System.currentTimeMillis();
 		long time = timeoutMillis;
 		while (!put(msg, t)) {
-			t.timer.setTimer(time);
-			t.scheduler.scheduleTimer(t.timer);
+			t.timer().setTimer(time);
+			t.scheduler.scheduleTimer(t.timer());
 			Task.pause(this);
-			t.timer.cancel();
+			t.timer().cancel();
 			removeSpaceAvailableListener(t);
 			time = timeoutMillis - (System.currentTimeMillis() - begin);
 			if (time <= 0) {
@@ -271,6 +270,64 @@ public class MailboxSPSC<T> implements PauseReason,
 				"numMsgs:" + getSize();
 	}
 
+	public int size() {
+		return msgs.size();
+	}
+
+	public boolean hasMessage() {
+		return !msgs.isEmpty();
+	}
+
+	public boolean hasSpace() {
+		return msgs.hasSpace();
+	}
+
+	public void putb(T msg) {
+		putb(msg, 0 /* infinite wait */);
+	}
+
+	/**
+	 * put a non-null message in the mailbox, and block the calling thread for
+	 * timeoutMillis if the mailbox is full
+	 * 
+	 * @return true if the message was successfully put in the mailbox
+	 */
+	public boolean putb(T msg, long timeoutMillis) {
+		BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
+		boolean success;
+		// the consumer may have made space before the registration
+		while (!(success = put(msg, evs)) && (msgs.hasSpace() || evs.blockingWait())) {
+			removeSpaceAvailableListener(evs);
+		}
+		removeSpaceAvailableListener(evs);
+		return success;
+	}
+
+	/**
+	 * retrieve a message, blocking the thread indefinitely. Note, this is a
+	 * heavyweight block, unlike #get() that pauses the Fiber but doesn't block
+	 * the thread.
+	 */
+	public T getb() {
+		return getb(0);
+	}
+
+	/**
+	 * retrieve a msg, and block the Java thread for the time given.
+	 * 
+	 * @return null if timed out.
+	 */
+	public T getb(final long timeoutMillis) {
+		BlockingSubscriber evs = new BlockingSubscriber(timeoutMillis);
+		T msg;
+		// the producer may have put a message before the registration
+		while ((msg = get(evs)) == null && (!msgs.isEmpty() || evs.blockingWait())) {
+			removeMsgAvailableListener(evs);
+		}
+		removeMsgAvailableListener(evs);
+		return msg;
+	}
+
 	public void clear() {
 		Object value;
 		do {
@@ -289,6 +346,11 @@ public class MailboxSPSC<T> implements PauseReason,
 		}
 	}
 
+	public void detach(Task t) {
+		removeMsgAvailableListener(t);
+		removeSpaceAvailableListener(t);
+	}
+
 	/**
 	 * Pausable fill Pause the caller until at least one message is available.
 	 *
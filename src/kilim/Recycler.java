@@ -0,0 +1,62 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import kilim.timerservice.Timer;
+
+/**
+ * per-thread pools of the fibers and timers of completed recyclable tasks, for reuse by the next
+ * recyclable task that runs or sets a timeout on the same thread, see Task.setRecyclable.
+ * the task itself is never reused, so an exit message or a reference to a done task remains valid
+ */
+class Recycler {
+    /** the max number of fibers and of timers pooled per thread */
+    static int max = Integer.getInteger("kilim.Task.recycleMax",256);
+
+    private static final ThreadLocal<Recycler> local = new ThreadLocal<Recycler>() {
+        protected Recycler initialValue() { return new Recycler(); }
+    };
+
+    private final Fiber [] fibers = new Fiber[max];
+    private final Timer [] timers = new Timer[max];
+    private int numFibers, numTimers;
+
+    static Fiber fiber(Task task) {
+        Recycler pool = local.get();
+        if (pool.numFibers==0)
+            return new Fiber(task);
+        Fiber f = pool.fibers[--pool.numFibers];
+        pool.fibers[pool.numFibers] = null;
+        f.task = task;
+        return f;
+    }
+
+    static Timer timer(Task task) {
+        Recycler pool = local.get();
+        if (pool.numTimers==0)
+            return new Timer(task);
+        Timer timer = pool.timers[--pool.numTimers];
+        pool.timers[pool.numTimers] = null;
+        timer.es = task;
+        return timer;
+    }
+
+    /**
+     * pool the fiber and timer of a done task.
+     * a timer that's still pending is dropped, and the subscriber of a pooled timer is left in place
+     * till reuse so that a late firing goes to the done task (and is ignored).
+     * a cancelled timer can still be held by a timer service, eg of the scheduler that the task ran on before
+     * resumeOnScheduler, and the pool is per thread not per service, so only a timer that's been released is pooled
+     */
+    static void release(Fiber f,Timer timer) {
+        Recycler pool = local.get();
+        if (f != null && pool.numFibers < max) {
+            f.reset();
+            f.task = null;
+            pool.fibers[pool.numFibers++] = f;
+        }
+        if (timer != null && timer.getExecutionTime() < 0 && !timer.onHeap && !timer.onQueue.get()
+                && pool.numTimers < max)
+            pool.timers[pool.numTimers++] = timer;
+    }
+}
@@ -7,8 +7,11 @@ package kilim;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import kilim.concurrent.IdleStrategy;
 import kilim.nio.NioSelectorScheduler.RegistrationTask;
 import kilim.timerservice.Timer;
+import kilim.timerservice.TimerService;
+import kilim.timerservice.TimerService.WatchdogContext;
 
 /**
  * This is a basic FIFO Executor. It maintains a list of runnable tasks and hands them out to WorkerThreads. Note
@@ -23,8 +26,23 @@ public abstract class Scheduler {
     public static int defaultNumberThreads;
     private static final ThreadLocal<Task> taskMgr_ = new ThreadLocal<Task>();
     public static Logger defaultLogger = new BasicLogger();
+    /**
+     * the default strategy for idle worker threads, set kilim.Scheduler.idle to one of PARK, SPIN_PARK or SPIN
+     * or to "spins,waits,yields", see IdleStrategy
+     */
+    public static IdleStrategy defaultIdleStrategy
+            = IdleStrategy.getStrategy("kilim.Scheduler.idle",IdleStrategy.PARK);
+
+    /**
+     * the share of each Task priority class when the classes compete, ie when all are runnable the high,
+     * normal and low classes run in the ratio 8:4:1. set kilim.Scheduler.weights to override, eg "16,4,1"
+     */
+    public static int [] priorityWeights = parseWeights("kilim.Scheduler.weights",8,4,1);
 
     protected AtomicBoolean shutdown = new AtomicBoolean(false);
+    /** the monitor for awaitIdle */
+    private final Object quiescence = new Object();
+    private volatile int numWaiting;
     
     private Logger logger = defaultLogger;
 
@@ -93,6 +111,62 @@ public abstract class Scheduler {
      */
     public abstract void idledown();
 
+    /**
+     * is the scheduler idle, ie no tasks running or waiting to be run and no pending timers.
+     * subclasses that override this method must call quiescent when their count of tasks drops to zero
+     */
+    protected boolean isIdle() {
+        return isEmptyish();
+    }
+
+    /** are there no tasks running or waiting to be run, ignoring timers */
+    public boolean isEmpty() {
+        return isEmptyish();
+    }
+
+    /**
+     * are there no tasks and no pending timers in ts, firing any timers that have expired,
+     * for use by isIdle with the scheduler's own isEmpty.
+     * firing an expired timer schedules its task, so isEmpty is rechecked after the timers
+     * @param doghouse the context to publish the watchdog to if timers remain
+     */
+    protected boolean resolved(TimerService ts,WatchdogContext doghouse) {
+        return isEmpty() && ts.isIdle(doghouse) && isEmpty();
+    }
+
+    /** subclasses call this when their count of tasks drops to zero to wake any awaitIdle callers */
+    protected void quiescent() {
+        if (numWaiting > 0 && isIdle())
+            synchronized (quiescence) { quiescence.notifyAll(); }
+    }
+
+    /**
+     * block the thread till a moment at which there are no tasks running or waiting to be run
+     * and no pending timers. waiters are woken as the last task completes, ie without polling
+     * @param timeout the maximum number of milliseconds to wait, or zero to wait indefinitely
+     * @return true if the scheduler became idle, false on timeout or interruption
+     */
+    public boolean awaitIdle(long timeout) {
+        long deadline = System.nanoTime() + timeout*1000000L;
+        synchronized (quiescence) {
+            numWaiting++;
+            try {
+                while (! isIdle()) {
+                    long delay = timeout==0 ? 0 : (deadline - System.nanoTime())/1000000L;
+                    if (timeout != 0 && delay <= 0)
+                        return false;
+                    quiescence.wait(delay);
+                }
+                return true;
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            finally { numWaiting--; }
+        }
+    }
+
     public void shutdown() {
         shutdown.set(true);
         if (defaultScheduler==this)
@@ -103,8 +177,29 @@ public abstract class Scheduler {
         return shutdown.get();
     }
 
+    static int [] parseWeights(String prop,int ... dv) {
+        String s = System.getProperty(prop);
+        if (s==null) return dv;
+        String [] words = s.split(",");
+        if (words.length != Task.NUM_PRIORITIES) return dv;
+        int [] weights = new int[words.length];
+        try {
+            for (int ii=0; ii < words.length; ii++)
+                if ((weights[ii] = Integer.parseInt(words[ii].trim())) <= 0) return dv;
+        }
+        catch (NumberFormatException ex) { return dv; }
+        return weights;
+    }
+
+    /** the priority of a runnable, ie the task's priority or normal for other runnables */
+    protected static int priority(Object runnable) {
+        return runnable instanceof Task ? ((Task) runnable).getPriority() : Task.PRIORITY_NORMAL;
+    }
+
     /** a static accessor to allow log to be protected */
     static protected void logRelay(Scheduler sched,Object src,Object obj) { sched.log(src,obj); }
+    /** a static accessor to allow schedulers in other packages to set the thread id of a task */
+    static protected void tidRelay(Task task,int tid) { task.setTid(tid); }
     
     public static interface Logger {
         public void log(Object source,Object problem);
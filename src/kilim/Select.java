@@ -0,0 +1,190 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import kilim.timerservice.Timer;
+
+/**
+ * a reusable select for a task over a set of sources, ie channels (Mailbox, Cell, MailboxSPSC, MailboxMPSC),
+ * alarms, EndPoint readiness (see EndPoint.selectable) or any Source.
+ * the sources are added once and select pauses till one is ready, returning its index, without allocating.
+ * the scan starts after the source that was last returned, so a busy source can't starve the others.
+ * a select belongs to a single task at a time, as do the channels that it waits on
+ * <pre>
+ *     Select sel = new Select().add(requests).add(control);
+ *     while (true) {
+ *         int index = sel.select(1000);
+ *         if (index == 0) handle(requests.getnb());
+ *         else if (index == 1) ...
+ *         else idle();
+ *     }
+ * </pre>
+ */
+public class Select implements Detachable {
+    /**
+     * something that a select can wait on. the methods are called by the selecting task,
+     * except that isReady may also be called by the scheduler while the task is paused
+     */
+    public interface Source {
+        /** true if the source has an event, without consuming it */
+        boolean isReady();
+        /** called when select returns this source, to consume the event if that's not left to the caller */
+        void selected();
+        /** arrange for the task to be resumed when the source might become ready */
+        void subscribe(Task t);
+        /** undo subscribe */
+        void unsubscribe(Task t);
+    }
+
+    /** a channel is ready when it has a message, which is left for the caller to get */
+    static class ChannelSource implements Source {
+        final Channel<?> chan;
+        ChannelSource(Channel<?> chan) { this.chan = chan; }
+        public boolean isReady() { return chan.hasMessage(); }
+        public void selected() {}
+        public void subscribe(Task t) { chan.addMsgAvailableListener(t); }
+        public void unsubscribe(Task t) { chan.removeMsgAvailableListener(t); }
+    }
+
+    /**
+     * a source that becomes ready at a point in time and stays ready till it's selected or reset,
+     * ie a timer that a select can wait on alongside other sources
+     */
+    public static class Alarm implements Source, EventSubscriber {
+        private final Timer timer = new Timer(this);
+        private volatile boolean fired, armed;
+        private volatile Task waiter;
+        private long deadline;
+
+        /** an alarm that fires delayMillis from now */
+        public Alarm(long delayMillis) {
+            reset(delayMillis);
+        }
+
+        /** rearm the alarm to fire delayMillis from now, clearing a pending firing */
+        public void reset(long delayMillis) {
+            timer.cancel();
+            deadline = System.currentTimeMillis() + delayMillis;
+            fired = armed = false;
+        }
+
+        public boolean isReady() { return fired; }
+
+        /** the alarm is one-shot, ie selecting it clears the firing */
+        public void selected() { fired = false; }
+
+        public void subscribe(Task t) {
+            waiter = t;
+            if (! armed) {
+                armed = true;
+                timer.setLiteral(deadline);
+                t.scheduler.scheduleTimer(timer);
+            }
+        }
+
+        public void unsubscribe(Task t) { waiter = null; }
+
+        public void onEvent(EventPublisher ep,Event e) {
+            fired = true;
+            Task t = waiter;
+            if (t != null)
+                t.resume();
+        }
+    }
+
+    private Source [] sources = new Source[4];
+    private int num;
+    private int next;
+
+    /** add a channel, which is selected when it has a message. the index is the number of prior adds */
+    public Select add(Channel<?> chan) {
+        return add(new ChannelSource(chan));
+    }
+
+    /** add a source. the index is the number of prior adds */
+    public Select add(Source source) {
+        if (num==sources.length) {
+            Source [] grown = new Source[2*num];
+            System.arraycopy(sources,0,grown,0,num);
+            sources = grown;
+        }
+        sources[num++] = source;
+        return this;
+    }
+
+    /** the number of sources */
+    public int size() {
+        return num;
+    }
+
+    /** the index of a ready source, scanning from the one after the last selected, or -1 */
+    private int ready() {
+        for (int ii=0, index=next; ii < num; ii++, index++) {
+            if (index==num) index = 0;
+            Source source = sources[index];
+            if (source.isReady()) {
+                next = index+1==num ? 0 : index+1;
+                source.selected();
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * return the index of a ready source if there is one, without pausing
+     * @return the index, or -1
+     */
+    public int selectnb() {
+        return ready();
+    }
+
+    /** pause till a source is ready, and return its index */
+    public int select() throws Pausable {
+        return select(0);
+    }
+
+    /**
+     * pause till a source is ready or the timeout expires
+     * @param timeoutMillis the max time to pause, or 0 to pause indefinitely
+     * @return the index of the ready source, or -1 if the timeout expired
+     */
+    public int select(long timeoutMillis) throws Pausable {
+        int index = ready();
+        if (index >= 0)
+            return index;
+        Task t = Task.getCurrentTask();
+        if (timeoutMillis > 0) {
+            t.timer().setTimer(timeoutMillis);
+            t.scheduler.scheduleTimer(t.timer());
+        }
+        while (index < 0 && ! t.checkTimeout()) {
+            for (int ii=0; ii < num; ii++)
+                sources[ii].subscribe(t);
+            // an event that raced the subscription may have missed the task, so look again
+            if ((index = ready()) < 0)
+                Task.pause(this);
+            for (int ii=0; ii < num; ii++)
+                sources[ii].unsubscribe(t);
+            if (index < 0)
+                index = ready();
+        }
+        if (timeoutMillis > 0)
+            t.timer().cancel();
+        return index;
+    }
+
+    public boolean isValid(Task t) {
+        if (t.checkTimeout())
+            return false;
+        for (int ii=0; ii < num; ii++)
+            if (sources[ii].isReady())
+                return false;
+        return true;
+    }
+
+    public void detach(Task t) {
+        for (int ii=0; ii < num; ii++)
+            sources[ii].unsubscribe(t);
+    }
+}
@@ -24,7 +24,7 @@ public class ServletHandler extends HttpServlet {
                 catch (Exception ex) { resp.sendError(500,"the server encountered an error"); }
                 async.complete();
             }
-        }.start();
+        }.setRecyclable(Task.recycle).start();
     }
 
     
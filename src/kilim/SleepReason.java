@@ -0,0 +1,14 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/** the reason for a task paused in Task.sleep, valid till the task's timer fires */
+public class SleepReason implements PauseReason {
+    public boolean isValid(Task t) {
+        return ! t.checkTimeout();
+    }
+    @Override
+    public String toString() {
+        return "sleep";
+    }
+}
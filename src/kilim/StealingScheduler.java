@@ -0,0 +1,708 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import kilim.concurrent.Affinity;
+import kilim.concurrent.IdleStrategy;
+import kilim.concurrent.SPMCQueue;
+import kilim.timerservice.Timer;
+import kilim.timerservice.TimerService;
+import kilim.timerservice.TimerService.WatchdogContext;
+import kilim.timerservice.TimerService.WatchdogTask;
+
+/*
+    a work-stealing alternative to AffineScheduler, see fixme:denial-of-service and fixme:context-switch there
+
+    each worker owns a lock-free fifo that only it pushes to (SPMCQueue) and that idle workers steal from
+    a task resumed on a worker is queued locally, ie it stays on the thread (and cache) that woke it
+    a task resumed from outside the scheduler goes to a shared injection queue
+    a task scheduled to an index (ie pinned) goes to that worker's inbox, which is never stolen from,
+      so Task.pinToThread and kilim.ReentrantLock work as they do with AffineScheduler
+    the local queue is fifo (not the lifo of a classic chase-lev deque) so that Task.yield lets others run
+
+    run next (cf go's runnext): a task woken by the task that is running on a worker is placed in that worker's
+      runNext slot and run as soon as the waker pauses, on the same thread, ie message passing doesn't pay
+      a trip through a queue or a cross-thread handoff. a task displaced from the slot goes to the local queue
+      to prevent a pair of tasks from monopolizing a worker, after runNext consecutive dispatches from the slot
+      the slot is demoted to the tail of the local queue. the slot is stolen only as a last resort
+      set kilim.StealingScheduler.runNext (or call setRunNext) to change the limit, or zero to disable
+
+    an idle worker applies an IdleStrategy (spin, onSpinWait, yield) before parking, see setIdleStrategy
+
+    elastic mode: created with maxThreads greater than minThreads, a worker is a slot whose thread comes and goes
+      a monitor thread samples the workers every period and starts the thread for another slot when
+        - maxBlocked workers have each been running the same task for a whole period while work is waiting,
+          ie the tasks are blocking their threads (eg jdbc or file io) or are just long-running,
+          the two can't be distinguished
+        - a probe posted to the shared queue waits longer than maxLatency
+      a worker that has been idle for keepAlive retires (its thread exits) while more than minThreads are active
+      a worker with paused pinned tasks (ie Task.pinToThread or a held ReentrantLock) doesn't retire,
+        and a task scheduled to a retired slot revives it, so pinned tasks always resume on the same thread
+      the monitor sleeps while the scheduler has no tasks, ie an idle scheduler doesn't wake up
+      see kilim.StealingScheduler.{period,keepAlive,maxLatency,maxBlocked} and setElastic
+
+    partitions: the workers can be split into partitions, eg one per socket, each optionally bound to a set of cpus
+      (sched_setaffinity by way of taskset, see kilim.concurrent.Affinity), to cut remote memory traffic
+      the workers are assigned to the partitions in turn, ie worker ii is in partition ii % numPartitions
+      a task remembers the partition it last ran in (its home) and is resumed there, ie a task woken from
+        another partition or from outside the scheduler goes to its home partition's queue,
+        and a task woken within its home partition runs as usual (runNext or local queue)
+      an idle worker steals from its own partition first, and from the other partitions as a last resort,
+        in which case the stolen task's home moves with it
+      set kilim.StealingScheduler.partitions to "numa" for a partition per numa node,
+        or to cpu lists separated by colons, eg "0-7,16-23:8-15,24-31", or pass the cpu lists to the constructor
+
+    testing with this scheduler:
+        java -ea -cp target/classes:$cp kilim.tools.Kilim kilim.StealingScheduler \
+            junit.textui.TestRunner kilim.test.AllWoven
+*/
+public class StealingScheduler extends Scheduler implements WatchdogContext {
+    /** the number of dispatches between checks of the shared queue when the local queue is busy */
+    static final int injectInterval = 61;
+    static final int defaultQueueSize = 256;
+    static final int defaultRunNext = Integer.getInteger("kilim.StealingScheduler.runNext",16);
+    // elastic mode, in millis except maxLatency in micros
+    static final int defaultPeriod = Integer.getInteger("kilim.StealingScheduler.period",10);
+    static final int defaultKeepAlive = Integer.getInteger("kilim.StealingScheduler.keepAlive",60000);
+    static final int defaultMaxLatency = Integer.getInteger("kilim.StealingScheduler.maxLatency",5000);
+    static final int defaultMaxBlocked = Integer.getInteger("kilim.StealingScheduler.maxBlocked",1);
+    static final String defaultPartitions = System.getProperty("kilim.StealingScheduler.partitions");
+    static final int ACTIVE = 0, RETIRED = 1;
+
+    protected Worker [] workers;
+    protected Partition [] partitions;
+    protected ConcurrentLinkedQueue<Runnable> inject = new ConcurrentLinkedQueue();
+    protected AtomicInteger count = new AtomicInteger(0);
+    protected AtomicInteger numIdle = new AtomicInteger(0);
+    protected AtomicInteger numActive = new AtomicInteger(0);
+    protected TimerService timerService;
+    private int rover;
+    protected volatile int runNext = defaultRunNext;
+    protected volatile IdleStrategy idleStrategy = defaultIdleStrategy;
+    protected final int minThreads;
+    /** the elastic mode monitor, or null if the number of threads is fixed */
+    protected Monitor monitor;
+    // elastic mode, in nanos
+    protected volatile long period = defaultPeriod*1000000L;
+    protected volatile long keepAlive = defaultKeepAlive*1000000L;
+    protected volatile long maxLatency = defaultMaxLatency*1000L;
+    protected volatile int maxBlocked = defaultMaxBlocked;
+
+    /**
+     * create the scheduler
+     * @param numThreads the number of threads to use, or use the default if less than one
+     */
+    public StealingScheduler(int numThreads) {
+        this(numThreads,0);
+    }
+
+    /**
+     * create the scheduler
+     * @param numThreads the number of threads to use, or use the default if less than one
+     * @param queueSize the capacity of each worker's local queue, or use the default if less than one.
+     *          tasks that overflow the local queue are added to the shared queue
+     */
+    public StealingScheduler(int numThreads,int queueSize) {
+        this(numThreads,numThreads,queueSize);
+    }
+
+    /**
+     * create the scheduler, which is elastic if maxThreads is greater than minThreads
+     * @param minThreads the number of threads to start with and to keep, or use the default if less than one
+     * @param maxThreads the maximum number of threads, ie including those started when tasks block
+     * @param queueSize the capacity of each worker's local queue, or use the default if less than one.
+     *          tasks that overflow the local queue are added to the shared queue
+     */
+    public StealingScheduler(int minThreads,int maxThreads,int queueSize) {
+        this(minThreads,maxThreads,queueSize,Affinity.parse(defaultPartitions));
+    }
+
+    /**
+     * create the scheduler with its workers split into partitions
+     * @param minThreads the number of threads to start with and to keep, or use the default if less than one
+     * @param maxThreads the maximum number of threads, ie including those started when tasks block
+     * @param queueSize the capacity of each worker's local queue, or use the default if less than one.
+     *          tasks that overflow the local queue are added to the shared queue
+     * @param cpus the cpus to bind each partition to in taskset list format, eg "0-7,16-23",
+     *          with a null entry for a partition that isn't bound, or null or empty for a single unbound partition
+     */
+    public StealingScheduler(int minThreads,int maxThreads,int queueSize,String ... cpus) {
+        if (minThreads <= 0)
+            minThreads = defaultNumberThreads;
+        if (maxThreads < minThreads)
+            maxThreads = minThreads;
+        if (queueSize <= 0)
+            queueSize = defaultQueueSize;
+        this.minThreads = minThreads;
+        if (cpus==null || cpus.length==0)
+            cpus = new String[1];
+        int numPartitions = Math.min(cpus.length,maxThreads);
+        partitions = new Partition[numPartitions];
+        for (int ii=0; ii < numPartitions; ii++)
+            partitions[ii] = new Partition(ii,cpus[ii],(maxThreads-ii+numPartitions-1) / numPartitions);
+        workers = new Worker[maxThreads];
+        for (int ii=0; ii < maxThreads; ii++) {
+            Partition part = partitions[ii % numPartitions];
+            workers[ii] = new Worker(ii,queueSize,part);
+            part.members[ii / numPartitions] = workers[ii];
+        }
+        timerService = new TimerService(this);
+        if (maxThreads > minThreads)
+            monitor = new Monitor();
+        for (int ii=0; ii < minThreads; ii++)
+            workers[ii].activate();
+        if (monitor != null)
+            monitor.start();
+    }
+
+    /**
+     * set the limit on consecutive dispatches from a worker's runNext slot
+     * @param limit the maximum number of consecutive dispatches, or zero to disable the slot
+     * @return this scheduler
+     */
+    public StealingScheduler setRunNext(int limit) {
+        runNext = Math.max(limit,0);
+        return this;
+    }
+
+    /**
+     * set the strategy that idle workers apply before parking
+     * @param idle the strategy, eg IdleStrategy.PARK to park immediately
+     * @return this scheduler
+     */
+    public StealingScheduler setIdleStrategy(IdleStrategy idle) {
+        idleStrategy = idle;
+        return this;
+    }
+
+    /**
+     * set the elastic mode tunables, which have no effect unless maxThreads is greater than minThreads
+     * @param keepAlive the millis that a worker can be idle before it retires
+     * @param maxLatency the micros that a task can wait in the shared queue before another worker is started
+     * @param maxBlocked the number of workers that can be stuck on a task for a period
+     *          before another worker is started
+     * @return this scheduler
+     */
+    public StealingScheduler setElastic(long keepAlive,long maxLatency,int maxBlocked) {
+        this.keepAlive = keepAlive*1000000L;
+        this.maxLatency = maxLatency*1000L;
+        this.maxBlocked = Math.max(maxBlocked,1);
+        return this;
+    }
+
+    /** the number of workers that currently have a thread */
+    public int numActive() { return numActive.get(); }
+
+    /** the number of partitions */
+    public int numPartitions() { return partitions.length; }
+
+    /** the number of workers that are parked */
+    public int numIdle() { return numIdle.get(); }
+
+    /**
+     * start a task in a partition, ie as if it had last run there
+     * @return the task
+     */
+    public <T extends Task> T start(T task,int partition) {
+        if (partition < 0 || partition >= partitions.length)
+            throw new IllegalArgumentException("no such partition: " + partition);
+        task.setScheduler(this);
+        task.home = partition;
+        task.start();
+        return task;
+    }
+
+    /** return the worker running on the current thread, or null if the thread doesn't belong to this scheduler */
+    protected Worker current() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Runner) {
+            Worker worker = ((Runner) thread).worker;
+            if (worker.owner()==this)
+                return worker;
+        }
+        return null;
+    }
+
+    public void schedule(int index,Task t) {
+        count.incrementAndGet();
+        if (monitor != null)
+            monitor.wake();
+        if (index >= 0) {
+            Worker worker = workers[index];
+            worker.pinned.add(t);
+            if (! worker.activate())
+                worker.wake();
+            return;
+        }
+        Worker worker = current();
+        int home = t.home;
+        if (partitions.length > 1 && home >= 0 && (worker==null || worker.part.index != home)) {
+            Partition part = partitions[home];
+            part.inject.add(t);
+            signal(part);
+            return;
+        }
+        if (worker != null && runNext > 0 && worker.running != t && worker.running instanceof Task) {
+            Runnable old = runNextUpdater.getAndSet(worker,t);
+            if (old==null)
+                return;
+            t = (Task) old;
+        }
+        if (worker==null || !worker.local.offer(t))
+            inject.add(t);
+        signal(worker==null ? null : worker.part);
+    }
+
+    /** wake a parked worker if there are any */
+    protected void signal() {
+        signal(null);
+    }
+
+    /** wake a parked worker if there are any, preferring a member of part if it's not null */
+    protected void signal(Partition part) {
+        if (numIdle.get()==0)
+            return;
+        int start = rover++ & Integer.MAX_VALUE;
+        if (part != null && partitions.length > 1) {
+            Worker [] members = part.members;
+            boolean looking = false;
+            for (int ii=0; ii < members.length; ii++) {
+                Worker member = members[(start+ii) % members.length];
+                if (member.wake())
+                    return;
+                looking |= member.state==ACTIVE && member.parked==0 && (member.stamp & 1)==0;
+            }
+            // a member that is between tasks will find the work, so don't wake another partition
+            if (looking)
+                return;
+        }
+        int num = workers.length;
+        for (int ii=0; ii < num; ii++)
+            if (workers[(start+ii) % num].wake())
+                return;
+    }
+
+    public void scheduleTimer(Timer t) {
+        timerService.submit(t);
+    }
+
+    public void publish(WatchdogTask dog) {
+        count.incrementAndGet();
+        inject.add(dog);
+        signal();
+    }
+
+    public boolean isEmpty() {
+        return count.get()==0;
+    }
+
+    public boolean isEmptyish() {
+        if (! inject.isEmpty())
+            return false;
+        for (Partition part : partitions)
+            if (! part.inject.isEmpty()) return false;
+        for (Worker worker : workers)
+            if (! worker.isEmpty()) return false;
+        return true;
+    }
+
+    public int numThreads() { return workers.length; }
+
+    public void idledown() {
+        awaitIdle(0);
+    }
+
+    /*
+     wait till there are no pending timers
+     no running tasks
+     no tasks waiting to be run
+     */
+    public boolean waitIdle(int delay) {
+        return awaitIdle(0);
+    }
+
+    protected boolean isIdle() {
+        return resolved(timerService,this);
+    }
+
+    public void shutdown() {
+        super.shutdown();
+        for (Worker worker : workers)
+            if (worker.thread != null)
+                LockSupport.unpark(worker.thread);
+        if (monitor != null)
+            LockSupport.unpark(monitor);
+        timerService.shutdown();
+    }
+
+    private static final AtomicIntegerFieldUpdater<Worker> parkedUpdater
+            = AtomicIntegerFieldUpdater.newUpdater(Worker.class,"parked");
+    private static final AtomicIntegerFieldUpdater<Worker> stateUpdater
+            = AtomicIntegerFieldUpdater.newUpdater(Worker.class,"state");
+    private static final AtomicLongFieldUpdater<Worker> stampUpdater
+            = AtomicLongFieldUpdater.newUpdater(Worker.class,"stamp");
+    private static final AtomicReferenceFieldUpdater<Worker,Runnable> runNextUpdater
+            = AtomicReferenceFieldUpdater.newUpdater(Worker.class,Runnable.class,"next");
+    private static final AtomicIntegerFieldUpdater<Monitor> sleepingUpdater
+            = AtomicIntegerFieldUpdater.newUpdater(Monitor.class,"sleeping");
+
+    /** the thread that runs a worker, a retired worker gets a new thread when it is revived */
+    protected static class Runner extends Thread {
+        protected final Worker worker;
+
+        Runner(Worker worker) {
+            this.worker = worker;
+            setDaemon(true);
+            setName("kilim-stealing-" + worker.index);
+        }
+
+        public void run() {
+            worker.run();
+        }
+    }
+
+    /** a group of workers that share a queue for their tasks and are optionally bound to a set of cpus */
+    protected class Partition {
+        protected final int index;
+        /** the cpus that the members are bound to in taskset list format, or null if they aren't bound */
+        protected final String cpus;
+        protected final Worker [] members;
+        /** the tasks that are resumed from another partition or from outside the scheduler */
+        protected final ConcurrentLinkedQueue<Runnable> inject = new ConcurrentLinkedQueue();
+        private volatile boolean warned;
+
+        Partition(int index,String cpus,int numMembers) {
+            this.index = index;
+            this.cpus = cpus;
+            members = new Worker[numMembers];
+        }
+
+        /** bind the current thread to the cpus, if any, logging the first failure */
+        void bind() {
+            if (cpus==null || Affinity.bind(cpus) || warned)
+                return;
+            warned = true;
+            log(StealingScheduler.this,"kilim: unable to bind partition " + index + " to cpus " + cpus);
+        }
+    }
+
+    protected class Worker {
+        protected final int index;
+        protected final Partition part;
+        protected final SPMCQueue<Runnable> local;
+        protected final ConcurrentLinkedQueue<Runnable> pinned = new ConcurrentLinkedQueue();
+        /** the current thread, replaced when a retired worker is revived */
+        volatile Runner thread;
+        volatile int parked;
+        volatile int state = RETIRED;
+        /** incremented when a dispatch starts and when it ends, ie odd while running, sampled by the monitor */
+        volatile long stamp;
+        /** the runNext slot, written by the owner and cleared by the owner or a thief */
+        volatile Runnable next;
+        /** the runnable being executed, only valid on the owning thread */
+        Runnable running;
+        /** the number of paused tasks that are pinned to this worker, only valid on the owning thread */
+        private int pinnedOut;
+        private int tick;
+        private int streak;
+        private int seed;
+
+        Worker(int index,int queueSize,Partition part) {
+            this.index = index;
+            this.part = part;
+            local = new SPMCQueue(queueSize);
+            seed = index+1;
+        }
+
+        StealingScheduler owner() { return StealingScheduler.this; }
+
+        /** unpark the worker if it is parked, returning true if this call was responsible for waking it */
+        protected boolean wake() {
+            if (parked==1 && parkedUpdater.compareAndSet(this,1,0)) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+
+        /** start a thread for the worker if it is retired, returning true if this call was responsible */
+        protected boolean activate() {
+            if (state != RETIRED || ! stateUpdater.compareAndSet(this,RETIRED,ACTIVE))
+                return false;
+            numActive.incrementAndGet();
+            Runner runner = new Runner(this);
+            thread = runner;
+            runner.start();
+            return true;
+        }
+
+        /**
+         * retire the worker if more than the minimum are active
+         * @return true if the thread should exit
+         */
+        protected boolean retire() {
+            int num;
+            do {
+                num = numActive.get();
+                if (num <= minThreads)
+                    return false;
+            } while (! numActive.compareAndSet(num,num-1));
+            state = RETIRED;
+            // recheck after retiring, a producer either sees us as retired (and revives us) or we see its task
+            if (isEmpty() || ! stateUpdater.compareAndSet(this,RETIRED,ACTIVE))
+                return true;
+            numActive.incrementAndGet();
+            return false;
+        }
+
+        boolean isEmpty() {
+            return pinned.isEmpty() && local.isEmpty() && next==null;
+        }
+
+        /** is there anything that this worker could run, ie excluding the pinned tasks of other workers */
+        boolean hasWork() {
+            if (! isEmpty() || ! inject.isEmpty())
+                return true;
+            for (Worker worker : workers)
+                if (! worker.local.isEmpty() || worker.next != null) return true;
+            for (Partition other : partitions)
+                if (! other.inject.isEmpty()) return true;
+            return false;
+        }
+
+        void run() {
+            part.bind();
+            while (true) {
+                Runnable runnable = next();
+                if (runnable != null)
+                    execute(runnable);
+                else if (! idle())
+                    return;
+            }
+        }
+
+        protected Runnable next() {
+            Runnable runnable = pinned.poll();
+            if (runnable==null && next != null) {
+                runnable = runNextUpdater.getAndSet(this,null);
+                if (runnable != null && ++streak > runNext) {
+                    if (! local.offer(runnable))
+                        inject.add(runnable);
+                    runnable = null;
+                }
+                if (runnable != null)
+                    return runnable;
+            }
+            streak = 0;
+            if (runnable==null && ++tick % injectInterval==0) {
+                runnable = part.inject.poll();
+                if (runnable==null)
+                    runnable = inject.poll();
+            }
+            if (runnable==null)
+                runnable = local.poll();
+            if (runnable==null)
+                runnable = part.inject.poll();
+            if (runnable==null)
+                runnable = inject.poll();
+            if (runnable==null)
+                runnable = steal();
+            return runnable;
+        }
+
+        /** take a task from another worker, from this worker's partition first and then from the others */
+        protected Runnable steal() {
+            seed ^= seed << 13; seed ^= seed >>> 17; seed ^= seed << 5;
+            int start = seed & Integer.MAX_VALUE;
+            if (partitions.length==1)
+                return steal(workers,start);
+            Runnable runnable = steal(part.members,start);
+            for (int ii=0; runnable==null && ii < partitions.length; ii++)
+                runnable = partitions[(start+ii) % partitions.length].inject.poll();
+            return runnable != null ? runnable : steal(workers,start);
+        }
+
+        /** take a task from the local queue of a victim, starting at a pseudo-random victim */
+        protected Runnable steal(Worker [] victims,int start) {
+            int num = victims.length;
+            for (int ii=0; ii < num; ii++) {
+                Worker victim = victims[(start+ii) % num];
+                if (victim==this) continue;
+                Runnable runnable = victim.local.poll();
+                if (runnable != null)
+                    return runnable;
+            }
+            for (int ii=0; ii < num; ii++) {
+                Worker victim = victims[(start+ii) % num];
+                if (victim==this || victim.next==null) continue;
+                Runnable runnable = runNextUpdater.getAndSet(victim,null);
+                if (runnable != null)
+                    return runnable;
+            }
+            return null;
+        }
+
+        protected void execute(Runnable runnable) {
+            Task task = runnable instanceof Task ? (Task) runnable : null;
+            if (task != null) {
+                // a task that paused while pinned to this worker is back
+                if (task.preferredResumeThread==index)
+                    pinnedOut--;
+                task.setTid(index);
+                task.home = part.index;
+            }
+            running = runnable;
+            stampUpdater.lazySet(this,stamp+1);
+            try {
+                runnable.run();
+            }
+            catch (Throwable ex) {
+                log(this,ex);
+            }
+            stampUpdater.lazySet(this,stamp+1);
+            running = null;
+            // the task can only be resumed here, so this read isn't racy
+            if (task != null && task.preferredResumeThread==index)
+                pinnedOut++;
+            timerService.trigger(StealingScheduler.this);
+            if (count.decrementAndGet()==0)
+                quiescent();
+        }
+
+        /**
+         * park till there's work to do
+         * @return false if the scheduler has been shutdown or the worker has retired
+         */
+        protected boolean idle() {
+            IdleStrategy strategy = idleStrategy;
+            for (int round=0; (round = strategy.idle(round)) >= 0;)
+                if (hasWork() || isShutdown())
+                    return ! isShutdown();
+            if (isShutdown())
+                return false;
+            boolean expired = false;
+            parked = 1;
+            numIdle.incrementAndGet();
+            // recheck after advertising, a producer either sees us as parked or we see its task
+            if (hasWork())
+                parkedUpdater.compareAndSet(this,1,0);
+            else if (monitor==null || numActive.get() <= minThreads)
+                while (parked==1 && !isShutdown())
+                    LockSupport.park(this);
+            else {
+                long deadline = System.nanoTime() + keepAlive;
+                while (parked==1 && !isShutdown()) {
+                    long delay = deadline - System.nanoTime();
+                    if (delay <= 0) {
+                        expired = pinnedOut==0 && parkedUpdater.compareAndSet(this,1,0);
+                        break;
+                    }
+                    LockSupport.parkNanos(this,delay);
+                }
+            }
+            parked = 0;
+            numIdle.decrementAndGet();
+            return ! (expired && retire());
+        }
+    }
+
+    /** the elastic mode monitor, starts another worker when tasks block or wait too long */
+    protected class Monitor extends Thread {
+        volatile int sleeping;
+        /** the time that the probe was posted, or zero if it isn't queued */
+        volatile long posted;
+        /** the wait of the last probe to run */
+        volatile long latency;
+        long [] stamps = new long[workers.length];
+        Runnable probe = new Runnable() {
+            public void run() {
+                latency = System.nanoTime() - posted;
+                posted = 0;
+            }
+        };
+
+        Monitor() {
+            setDaemon(true);
+            setName("kilim-stealing-monitor");
+        }
+
+        void wake() {
+            if (sleeping==1 && sleepingUpdater.compareAndSet(this,1,0))
+                LockSupport.unpark(this);
+        }
+
+        public void run() {
+            while (! isShutdown()) {
+                if (count.get()==0) {
+                    sleeping = 1;
+                    // recheck after advertising, cf Worker.idle
+                    if (count.get() > 0)
+                        sleepingUpdater.compareAndSet(this,1,0);
+                    while (sleeping==1 && ! isShutdown())
+                        LockSupport.park(this);
+                    continue;
+                }
+                LockSupport.parkNanos(this,period);
+                sample();
+            }
+        }
+
+        void sample() {
+            int blocked = 0;
+            for (int ii=0; ii < workers.length; ii++) {
+                Worker worker = workers[ii];
+                long stamp = worker.stamp;
+                if (worker.state==ACTIVE && (stamp & 1)==1 && stamp==stamps[ii])
+                    blocked++;
+                stamps[ii] = stamp;
+            }
+            boolean waiting = ! isEmptyish();
+            long wait = latency, time = posted;
+            latency = 0;
+            if (time != 0)
+                wait = Math.max(wait,System.nanoTime() - time);
+            else if (waiting) {
+                posted = System.nanoTime();
+                count.incrementAndGet();
+                inject.add(probe);
+                signal();
+            }
+            if ((blocked >= maxBlocked && waiting) || wait > maxLatency)
+                grow();
+        }
+
+        /** start the thread for a retired worker */
+        void grow() {
+            for (Worker worker : workers)
+                if (worker.state==RETIRED && worker.activate())
+                    return;
+        }
+    }
+
+    /** run the main method from another class using this scheduler as the default scheduler */
+    public static void main(String[] args) throws Exception {
+        Integer numThreads = ForkJoinScheduler.parseNum(args,0);
+        int offset = numThreads==null ? 0:1;
+        if (args.length <= offset) {
+            System.out.println(
+                    "usage:\n"
+                    + "  java kilim.StealingScheduler [numThreads] class [args]\n"
+                    + "call the main method of the specified class and pass the remaining arguments,\n"
+                    + "  using `new StealingScheduler(numThreads)` as the default scheduler"
+            );
+            System.exit(1);
+        }
+        int num = numThreads==null || numThreads <= 0 ? Scheduler.defaultNumberThreads : numThreads;
+        Scheduler sched = new StealingScheduler(num);
+        Scheduler.setDefaultScheduler(sched);
+        String className = args[offset];
+        String [] pargs = ForkJoinScheduler.processArgs(args,offset+1);
+        ForkJoinScheduler.run(className,"main",pargs);
+    }
+}
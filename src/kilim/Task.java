@@ -9,8 +9,15 @@ package kilim;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.LinkedList;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import kilim.timerservice.Timer;
 
 /**
  * A base class for tasks. A task is a lightweight thread (it contains its own
@@ -20,6 +27,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worker {
     static PauseReason                   yieldReason           = new YieldReason();
+    static PauseReason                   sleepReason           = new SleepReason();
     /**
      * Task id, automatically generated
      */
@@ -28,7 +36,7 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
 
     /**
      * The stack manager in charge of rewinding and unwinding the stack when
-     * Task.pause() is called.
+     * Task.pause() is called. allocated when the task first runs
      */
     protected Fiber                      fiber;
 
@@ -41,12 +49,15 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     protected PauseReason                pauseReason;
 
     /**
-     * running = true when it is put on the schdulers run Q (by Task.resume()).
+     * running = 1 when it is put on the schdulers run Q (by Task.resume()).
      * The Task.runExecute() method is called at some point; 'running' remains
-     * true until the end of runExecute (where it is reset), at which point a
+     * 1 until the end of runExecute (where it is reset), at which point a
      * fresh decision is made whether the task needs to continue running.
+     * updated with runningUpdater, ie no per-task atomic
      */
-    protected AtomicBoolean              running               = new AtomicBoolean(false);
+    private volatile int                 running;
+    private static final AtomicIntegerFieldUpdater<Task> runningUpdater
+            = AtomicIntegerFieldUpdater.newUpdater(Task.class,"running");
     protected volatile boolean           done                  = false;
 
     /**
@@ -59,15 +70,72 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     volatile int                         preferredResumeThread = -1;
 
     private int                          tid;
+    /** the partition that the task last ran in, or -1, see StealingScheduler */
+    int                                  home = -1;
+
+    /** the priority levels, a scheduler that honors them drains each level by weight, see setPriority */
+    public static final int              PRIORITY_HIGH = 0, PRIORITY_NORMAL = 1, PRIORITY_LOW = 2;
+    public static final int              NUM_PRIORITIES = 3;
+    private byte                         priority = PRIORITY_NORMAL;
+
     /**
-     * @see Task#preferredResumeThread
+     * the default for the tasks created by fork and spawn, set kilim.Task.recycle to enable
+     * @see #setRecyclable(boolean)
      */
-    int                                  numActivePins;
+    public static boolean                recycle = Boolean.getBoolean("kilim.Task.recycle");
+    private boolean                      recyclable;
+
+    /** the values of the TaskLocals, indexed by TaskLocal.index, or null if none have been set */
+    Object []                            locals;
 
     /**
-     * @see #informOnExit(Mailbox)
+     * the state that most tasks never use, allocated on first use to keep the task small.
+     * informOnExit may race the task itself, so it's set with coldUpdater
+     * @see #cold()
      */
-    private LinkedList<Mailbox<ExitMsg<TT>>> exitMBs;
+    private volatile Cold<TT>            cold;
+    private static final AtomicReferenceFieldUpdater<Task,Cold> coldUpdater
+            = AtomicReferenceFieldUpdater.newUpdater(Task.class,Cold.class,"cold");
+
+    static class Cold<TT> implements EventSubscriber {
+        final Task<TT>                   task;
+        Cold(Task<TT> task) { this.task = task; }
+
+        /**
+         * @see Task#preferredResumeThread
+         */
+        int                              numActivePins;
+
+        /**
+         * @see Task#informOnExit(Mailbox)
+         */
+        LinkedList<Mailbox<ExitMsg<TT>>> exitMBs;
+
+        /** completed with the exit result or failure, see toFuture */
+        CompletableFuture<TT>            future;
+        /** the exception that the task threw, for a future that's requested after it's done */
+        Throwable                        failure;
+
+        /** the time of the first budget check in the current dispatch, or zero, see preempt */
+        long                             sliceStart;
+
+        /** the scope that the task is a child of, and the index of its result, see TaskScope.fork */
+        TaskScope<TT>                    scope;
+        int                              scopeIndex;
+        /** the neighbors in the scope's list of running children, guarded by the scope */
+        Task<TT>                         scopePrev, scopeNext;
+
+        /** the exception to throw at the pause point, set by cancel */
+        volatile CancellationException   killed;
+
+        /** the deadline in millis, or zero, and the timer that cancels the task when it passes */
+        long                             deadline;
+        Timer                            deadlineTimer;
+
+        public void onEvent(EventPublisher ep,Event e) {
+            task.cancel(new CancellationException("deadline exceeded"));
+        }
+    }
 
     /**
      * The object responsible for handing this task to a thread when the task is
@@ -78,16 +146,23 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     public    volatile Object           exitResult = "OK";
 
 
-    // new timer service
-    public kilim.timerservice.Timer       timer;
+    // new timer service, allocated on first use, see timer()
+    private Timer                        timer;
+
+    /**
+     * preemptive weaving (see KilimContext.preempt) checks the fiber's budget at the loop back-edges
+     * of pausable methods, and every preemptInterval back-edges checks the time slice,
+     * yielding if the task has run for longer than preemptSlice nanos in the current dispatch.
+     * set kilim.Task.preemptInterval and kilim.Task.preemptSlice (in micros) to override
+     */
+    public static int                    preemptInterval = Integer.getInteger("kilim.Task.preemptInterval",1000);
+    public static long                   preemptSlice = Long.getLong("kilim.Task.preemptSlice",10000) * 1000;
     
     // for debugging Task.resume race conditions
     private static boolean debugRunning = false;
 
     public Task() {
         id = idSource.incrementAndGet();
-        fiber = new Fiber(this);
-        timer = new kilim.timerservice.Timer(this);
     }
     Task(boolean dummy) { id = idSource.incrementAndGet(); }
 
@@ -126,6 +201,7 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
         if (scheduler == null) {
             setScheduler(Scheduler.getDefaultScheduler());
         }
+        armDeadline();
         resume();
         return this;
     }
@@ -199,12 +275,37 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
         throw new AssertionError("Expected task to be run by WorkerThread");
     }
 
+    /** is the task scheduled or running, ie it won't be scheduled again by resume till it pauses */
+    protected boolean isRunning() {
+        return running==1;
+    }
+
+    /**
+     * the timer used for timeouts, allocated on first use.
+     * only the task itself should call this, ie while running
+     */
+    public Timer timer() {
+        if (timer==null)
+            timer = recyclable ? Recycler.timer(this) : new Timer(this);
+        return timer;
+    }
+
+    Cold<TT> cold() {
+        Cold<TT> c = cold;
+        if (c==null && ! coldUpdater.compareAndSet(this,null,c = new Cold(this)))
+            c = cold;
+        return c;
+    }
+
     boolean checkTimeout() {
-        return timer.getExecutionTime()==-2;
+        Timer t = timer;
+        return t != null && t.getExecutionTime()==-2;
     }
     public void onEvent(EventPublisher ep, Event e) {
-        if (e==kilim.timerservice.Timer.timedOut)
-            timer.setLiteral(-2);
+        Timer t = timer;
+        // a recyclable task releases its timer when done, so a late firing may find none
+        if (e==Timer.timedOut && t != null)
+            t.setLiteral(-2);
         boolean sched = resume();
     }
 
@@ -227,7 +328,7 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
         // will be doing that anyway.
 
         if (!done)
-            if (running.compareAndSet(/* expected */false, /* update */true))
+            if (runningUpdater.compareAndSet(this,/* expected */0, /* update */1))
                 doSchedule = true;
             else
                 if (debugRunning) System.out.println("Task.pause.running: " + this);
@@ -248,10 +349,93 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
             exit.putnb(new ExitMsg(this, exitResult));
             return;
         }
-        if (exitMBs == null) {
-            exitMBs = new LinkedList();
+        Cold<TT> c = cold();
+        if (c.exitMBs == null) {
+            c.exitMBs = new LinkedList();
+        }
+        c.exitMBs.add(exit);
+    }
+
+    /**
+     * the completion of the task as a future, ie without an exit mailbox or message.
+     * the future is completed with the exit result, or exceptionally with the exception that the task threw
+     * (a CancellationException if it was cancelled), and cancelling the future cancels the task
+     */
+    public synchronized CompletableFuture<TT> toFuture() {
+        Cold<TT> c = cold();
+        if (c.future==null) {
+            c.future = new TaskFuture(this);
+            if (done)
+                complete(c.future,c.failure);
+        }
+        return c.future;
+    }
+
+    private void complete(CompletableFuture<TT> future,Throwable failure) {
+        if (failure==null)
+            future.complete((TT) exitResult);
+        else
+            future.completeExceptionally(failure);
+    }
+
+    private static class TaskFuture<TT> extends CompletableFuture<TT> {
+        final Task<TT> task;
+        TaskFuture(Task<TT> task) { this.task = task; }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            task.cancel();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * pause till the stage completes, ie without blocking the thread.
+     * the task is resumed on its scheduler by the thread that completes the stage
+     * @return the result of the stage
+     * @throws CompletionException wrapping the exception that the stage completed with,
+     *   or the CancellationException if it was cancelled
+     */
+    public static <T> T await(CompletionStage<T> stage) throws Pausable {
+        if (stage instanceof CompletableFuture && ((CompletableFuture) stage).isDone())
+            return ((CompletableFuture<T>) stage).join();
+        Awaiter<T> aw = new Awaiter(getCurrentTask());
+        stage.whenComplete(aw);
+        while (! aw.done)
+            pause(aw);
+        return aw.get();
+    }
+
+    /** the pause reason for await, and the callback that the stage completes */
+    private static class Awaiter<T> implements Detachable, BiConsumer<T,Throwable> {
+        private volatile Task task;
+        private volatile boolean done;
+        private T result;
+        private Throwable ex;
+
+        Awaiter(Task task) { this.task = task; }
+
+        public void accept(T result,Throwable ex) {
+            this.result = result;
+            this.ex = ex;
+            done = true;
+            Task t = task;
+            if (t != null)
+                t.resume();
+        }
+
+        T get() {
+            if (ex==null)
+                return result;
+            if (ex instanceof CancellationException)
+                throw (CancellationException) ex;
+            if (ex instanceof CompletionException)
+                throw (CompletionException) ex;
+            throw new CompletionException(ex);
         }
-        exitMBs.add(exit);
+
+        public boolean isValid(Task t) { return ! done; }
+
+        public void detach(Task t) { task = null; }
     }
 
     /**
@@ -413,16 +597,14 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
      * doesn't hog the java thread.
      */
     public static void sleep(final long millis) throws Pausable {
-        // create a temp mailbox, and wait on it.
-        final Mailbox<Integer> sleepmb = new Mailbox<Integer>(1); // TODO: will
-        // need a
-        // better
-        // mechanism
-        // for
-        // monitoring
-        // later on.
-        
-        sleepmb.get(millis);
+        // pause on the task's own timer, ie no per-call mailbox
+        Task t = getCurrentTask();
+        Timer timer = t.timer();
+        timer.setTimer(millis);
+        t.scheduler.scheduleTimer(timer);
+        while (! t.checkTimeout())
+            pause(sleepReason);
+        timer.cancel();
     }
 
     public static void shutdown() {
@@ -435,15 +617,52 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
         errNotWoven();
     }
 
+    /**
+     * the marker for a back-edge budget check inserted by preemptive weaving,
+     * which the weaver replaces with a decrement of the fiber's budget. not called once woven
+     * @return the remaining budget
+     */
+    public static int budget() {
+        return 1;
+    }
+
+    /**
+     * called by preemptively woven code when the fiber's budget runs out,
+     * refill the budget and yield if the time slice is exhausted, see preemptInterval
+     */
+    public static void preempt() throws Pausable {
+        errNotWoven();
+    }
+
+    public static void preempt(Fiber f) {
+        if (f.pc == 0) {
+            f.budget = preemptInterval;
+            Task task = f.task;
+            if (task instanceof Continuation.FakeTask)
+                return;
+            Cold c = task.cold();
+            long now = System.nanoTime();
+            if (c.sliceStart==0) {
+                c.sliceStart = now;
+                return;
+            }
+            if (now - c.sliceStart < preemptSlice)
+                return;
+        }
+        yield(f);
+    }
+
     public static void yield(Fiber f) {
         if (f.task instanceof Continuation.FakeTask) { f.togglePause(); return; }
-        if (f.pc == 0) {
+        boolean resuming = f.pc != 0;
+        if (! resuming) {
             f.task.setPauseReason(yieldReason);
         } else {
             f.task.setPauseReason(null);
         }
         f.togglePause();
-        f.task.checkKill();
+        if (resuming)
+            f.task.checkKill(null);
     }
 
     /**
@@ -459,13 +678,18 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     }
 
     public static void pause(PauseReason pauseReason, Fiber f) {
-        if (f.pc == 0) {
-            f.task.setPauseReason(pauseReason);
+        Task task = f.task;
+        PauseReason prior = task.pauseReason;
+        boolean resuming = f.pc != 0;
+        if (! resuming) {
+            task.setPauseReason(pauseReason);
         } else {
-            f.task.setPauseReason(null);
+            task.setPauseReason(null);
         }
         f.togglePause();
-        f.task.checkKill();
+        // the argument isn't restored when resuming, so detach from the reason that was recorded
+        if (resuming)
+            task.checkKill(prior);
     }
 
     /*
@@ -484,12 +708,12 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     }
 
     public String toString() {
-        return "" + id + "(running=" + running + ",pr=" + pauseReason + ")";
+        return "" + id + "(running=" + (running==1) + ",pr=" + pauseReason + ")";
     }
 
     public String dump() {
         synchronized (this) {
-            return "" + id + "(running=" + running + ", pr=" + pauseReason
+            return "" + id + "(running=" + (running==1) + ", pr=" + pauseReason
                     + ")";
         }
     }
@@ -507,11 +731,11 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     
     public void pinToThread() {
         checkPin();
-        numActivePins++;
+        cold().numActivePins++;
     }
 
     public void unpinFromThread() {
-        numActivePins--;
+        cold().numActivePins--;
     }
 
     final protected void setPauseReason(PauseReason pr) {
@@ -534,6 +758,121 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
         return tid;
     }
 
+    /**
+     * set the priority class that the task is scheduled with when it's started or resumed.
+     * AffineScheduler and ForkJoinScheduler run the runnable tasks of each class in proportion to
+     * Scheduler.priorityWeights, so a high priority task jumps ahead of the background
+     * but a low priority task isn't starved. other schedulers ignore the priority
+     * @param priority one of PRIORITY_HIGH, PRIORITY_NORMAL or PRIORITY_LOW
+     */
+    public Task<TT> setPriority(int priority) {
+        if (priority < 0 || priority >= NUM_PRIORITIES)
+            throw new IllegalArgumentException("invalid priority: " + priority);
+        this.priority = (byte) priority;
+        return this;
+    }
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * when the task completes, return its fiber and timer to a pool for the current thread
+     * for reuse by the next recyclable task, trading a thread local lookup for the allocation.
+     * the task itself isn't reused, so exit messages and joins are unaffected,
+     * but a subclass mustn't retain the fiber. call before starting the task
+     */
+    public Task<TT> setRecyclable(boolean recyclable) {
+        this.recyclable = recyclable;
+        return this;
+    }
+    public boolean isRecyclable() {
+        return recyclable;
+    }
+
+    /**
+     * copy the TaskLocal values and the deadline of the task that's running on the current thread, if any,
+     * called for a child before it's started
+     */
+    void inherit() {
+        Task parent = Scheduler.getCurrentTask();
+        if (parent==null || parent==this)
+            return;
+        if (parent.locals != null && locals==null)
+            locals = parent.locals.clone();
+        Cold pc = parent.cold;
+        if (pc != null && pc.deadline > 0)
+            withDeadline(pc.deadline);
+    }
+
+    /**
+     * cancel the task, ie at its current (or next) pause point it detaches from the pause reason
+     * and a CancellationException is thrown, unwinding the stack and releasing its state.
+     * a task that catches the exception is cancelled again at each subsequent pause. no effect on a done task
+     */
+    public void cancel() {
+        cancel(new CancellationException("cancelled"));
+    }
+
+    void cancel(CancellationException ex) {
+        if (done)
+            return;
+        Cold<TT> c = cold();
+        if (c.killed==null)
+            c.killed = ex;
+        Timer t = timer;
+        if (t != null)
+            t.cancel();
+        resume();
+    }
+
+    public boolean isCancelled() {
+        Cold<TT> c = cold;
+        return c != null && c.killed != null;
+    }
+
+    /**
+     * cancel the task if it hasn't completed by the deadline.
+     * the deadline is inherited by the tasks that it forks or spawns, and an earlier deadline takes precedence
+     * @param deadline the time in millis, ie in terms of System.currentTimeMillis
+     */
+    public Task<TT> withDeadline(long deadline) {
+        Cold<TT> c = cold();
+        synchronized (c) {
+            if (c.deadline > 0 && c.deadline <= deadline)
+                return this;
+            c.deadline = deadline;
+        }
+        if (scheduler != null)
+            armDeadline();
+        return this;
+    }
+
+    /** the deadline in millis, or zero if there is none */
+    public long getDeadline() {
+        Cold<TT> c = cold;
+        return c==null ? 0 : c.deadline;
+    }
+
+    private void armDeadline() {
+        Cold<TT> c = cold;
+        if (c==null || c.deadline==0)
+            return;
+        Timer t;
+        synchronized (c) {
+            if (c.deadlineTimer==null)
+                c.deadlineTimer = new Timer(c);
+            t = c.deadlineTimer;
+            t.setLiteral(c.deadline);
+        }
+        scheduler.scheduleTimer(t);
+    }
+
+    void setScope(TaskScope<TT> scope,int index) {
+        Cold<TT> c = cold();
+        c.scope = scope;
+        c.scopeIndex = index;
+    }
+
     /**
      * Called by WorkerThread, it is the wrapper that performs pre and post
      * execute processing (in addition to calling the execute(fiber) method of
@@ -542,25 +881,41 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     public void run() throws NotPausable {
         Scheduler.setCurrentTask(this);
         Fiber f = fiber;
+        boolean fresh = f==null;
+        if (fresh)
+            fiber = f = recyclable ? Recycler.fiber(this) : new Fiber(this);
         boolean isDone = false;
+        Throwable failure = null;
+        Cold<TT> c = cold;
+        if (c != null) c.sliceStart = 0;
         try {
             assert (preferredResumeThread == -1 || preferredResumeThread == tid) : "Resumed "
                     + id + " in incorrect thread. ";
+            // a task cancelled before it ran never enters execute
+            if (fresh && c != null && c.killed != null)
+                throw c.killed;
             // start execute. fiber is wound to the beginning.
             execute(f.begin());
 
             // execute() done. Check fiber if it is pausing and reset it.
             isDone = f.end() || (pauseReason instanceof TaskDoneReason);
         } catch (Throwable th) {
-            getScheduler().log(this,th);
+            c = cold;
+            if (c==null || th != c.killed)
+                getScheduler().log(this,th);
             // Definitely done
+            failure = cold().failure = th;
             setPauseReason(new TaskDoneReason(th));
             isDone = true;
+        } finally {
+            // plain code that runs on the thread later, eg the exit callbacks below, isn't part of the task
+            Scheduler.setCurrentTask(null);
         }
 
         if (isDone) {
             // inform on exit
-            if (numActivePins > 0) {
+            c = cold;
+            if (c != null && c.numActivePins > 0) {
                 throw new AssertionError("Task ended but has active locks");
             }
             if (pauseReason instanceof TaskDoneReason) {
@@ -569,15 +924,29 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
             preferredResumeThread = -1;
             synchronized(this){
                 done = true;
-                if (exitMBs != null) {
+                c = cold;
+                if (c != null && c.exitMBs != null) {
                     ExitMsg msg = new ExitMsg(this, exitResult);
-                    for (Mailbox<ExitMsg<TT>> exitMB: exitMBs) {
+                    for (Mailbox<ExitMsg<TT>> exitMB: c.exitMBs) {
                         exitMB.putnb(msg);
                     }
                 }
             }
+            if (c != null && c.future != null)
+                complete(c.future,failure);
+            if (c != null && c.deadlineTimer != null)
+                c.deadlineTimer.cancel();
+            if (c != null && c.scope != null)
+                c.scope.done(this,c.scopeIndex,failure);
+            if (recyclable) {
+                Recycler.release(f,timer);
+                fiber = null;
+                timer = null;
+            }
         } else {
             if (tid >= 0) { // it is null for generators
+                c = cold;
+                int numActivePins = c==null ? 0 : c.numActivePins;
                 if (numActivePins > 0) {
                     preferredResumeThread = tid;
                 } else {
@@ -588,13 +957,13 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
             }
 
             PauseReason pr = this.pauseReason;
-            running.set(false);
+            running = 0;
             // The task has been in "running" mode until now, and may have
             // missed
             // notifications to the pauseReason object (that is, it would have
             // resisted calls to resume(). If the pauseReason is not valid any
             // more, we'll resume.
-            if (!pr.isValid(this)) {
+            if (!pr.isValid(this) || isCancelled()) {
                 // NOTE: At this point, another event could trigger resumption
                 // before the following resume() can kick in. Additionally,
                 // it is possible that the task could process all pending
@@ -627,17 +996,30 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
         return id;
     }
 
+    /** throw the CancellationException if the task has been cancelled */
     public void checkKill() {
+        checkKill(null);
+    }
+
+    /** if the task has been cancelled, detach from the pause reason and throw the CancellationException */
+    void checkKill(PauseReason pr) {
+        Cold<TT> c = cold;
+        CancellationException ex = c==null ? null : c.killed;
+        if (ex != null) {
+            if (pr instanceof Detachable)
+                ((Detachable) pr).detach(this);
+            throw ex;
+        }
     }
 
     public boolean getState() {
-        return running.get();
+        return running==1;
     }
     
     public static class Spawn<TT> extends Task<TT> {
         Pausable.Spawn<TT> body;
-        public Spawn() {}
-        public Spawn(Pausable.Spawn<TT> body) { this.body = body; }
+        public Spawn() { setRecyclable(recycle); }
+        public Spawn(Pausable.Spawn<TT> body) { this(); this.body = body; }
         public void execute() throws Pausable, Exception {
             TT val = body.execute();
             exit(val);
@@ -645,7 +1027,7 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
     }
     public static class Fork extends Task {
         Pausable.Fork body;
-        public Fork(Pausable.Fork body) { this.body = body; }
+        public Fork(Pausable.Fork body) { this.body = body; setRecyclable(recycle); }
         public void execute() throws Pausable, Exception {
             body.execute();
         }
@@ -658,6 +1040,7 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
             this.method = method;
             this.obj = obj;
             this.args = args;
+            setRecyclable(recycle);
         }
         public void execute() throws Pausable, Exception {
             Object val = Task.invoke(method,obj,args);
@@ -674,7 +1057,9 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
      * @return the spawned task. 
      */
     public static Task fork(final Pausable.Fork body) {
-        return new Fork(body).start();
+        Fork fork = new Fork(body);
+        fork.inherit();
+        return fork.start();
     }
     /**
      * Wraps the given object or lambda expression in a Task and starts that task.
@@ -685,12 +1070,14 @@ public abstract class Task<TT> implements Runnable, EventSubscriber, Fiber.Worke
      */
     public static <TT> Spawn<TT> spawn(final Pausable.Spawn<TT> body) {
         Spawn<TT> spawn = new Spawn(body);
+        spawn.inherit();
         spawn.start();
         return spawn;
     }
 
     public static Invoke spawn(Method method,Object obj,Object... args) {
         Invoke spawn = new Invoke(method,obj,args);
+        spawn.inherit();
         spawn.start();
         return spawn;
     }
@@ -7,6 +7,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
+/**
+ * a task that collects the exit messages of the tasks added to it.
+ * each child has an exit mailbox and wakes the group through a select, see TaskScope for a lighter weight fan-in
+ */
 public class TaskGroup extends Task {
     private Mailbox<Task> addedTasksMB = new Mailbox<Task>();
     private Mailbox<ExitMsg> exitmb = new Mailbox<ExitMsg>();
@@ -0,0 +1,66 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * a variable with a value per task, ie the task analogue of ThreadLocal, which follows the task across threads.
+ * each TaskLocal has a fixed index into an array on the task, so a lookup is a field load and an array load.
+ * get and set are pausable (but never pause) so that they find the task with the woven getCurrentTask,
+ * and there are variants that take the task explicitly for code that isn't pausable.
+ * the values are inherited, shallowly, by the tasks started with Task.fork, Task.spawn and TaskScope.fork.
+ * a task's values should only be accessed by the task itself, or before it's started
+ * @param <T> the type of the value
+ */
+public class TaskLocal<T> {
+    private static final AtomicInteger indexSource = new AtomicInteger();
+    private static final Object unset = new Object();
+    final int index = indexSource.getAndIncrement();
+
+    /** the value for a task that hasn't set one, null by default */
+    protected T initialValue() {
+        return null;
+    }
+
+    public T get() throws Pausable {
+        return get(Task.getCurrentTask());
+    }
+
+    public void set(T value) throws Pausable {
+        set(Task.getCurrentTask(),value);
+    }
+
+    public void remove() throws Pausable {
+        remove(Task.getCurrentTask());
+    }
+
+    public T get(Task task) {
+        Object [] locals = task.locals;
+        Object value = locals != null && index < locals.length ? locals[index] : null;
+        if (value==null) {
+            T initial = initialValue();
+            set(task,initial);
+            return initial;
+        }
+        return value==unset ? null : (T) value;
+    }
+
+    public void set(Task task,T value) {
+        Object [] locals = task.locals;
+        if (locals==null || index >= locals.length) {
+            Object [] grown = new Object[Math.max(index+1,indexSource.get())];
+            if (locals != null)
+                System.arraycopy(locals,0,grown,0,locals.length);
+            task.locals = locals = grown;
+        }
+        locals[index] = value==null ? unset : value;
+    }
+
+    /** clear the value, ie the next get returns the initial value */
+    public void remove(Task task) {
+        Object [] locals = task.locals;
+        if (locals != null && index < locals.length)
+            locals[index] = null;
+    }
+}
@@ -0,0 +1,183 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * structured fan-out and join of child tasks. the scope counts the outstanding children, and the last
+ * child to finish wakes the single waiter, ie there's no per-child mailbox, set or exit message.
+ * the first child to fail (or a call to cancel) cancels the scope - children that haven't been forked yet
+ * are never started, the running children are cancelled (see Task.cancel), and the failure is returned by join
+ * <pre>
+ *     TaskScope&lt;Integer&gt; scope = new TaskScope(new Integer[num]);
+ *     for (int ii=0; ii &lt; num; ii++) scope.fork(new Work(ii));
+ *     Throwable failure = scope.join();
+ *     Integer [] results = scope.getResults();
+ * </pre>
+ * @param <TT> the type of the child results
+ */
+public class TaskScope<TT> implements Detachable {
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger forked = new AtomicInteger();
+    private final TT [] results;
+    private Scheduler scheduler;
+    private volatile Task waiter;
+    private volatile Throwable failure;
+    /** the children that haven't finished, a list threaded through their cold state, guarded by the scope */
+    private Task<TT> children;
+
+    /** a scope that doesn't collect results */
+    public TaskScope() {
+        this(null);
+    }
+
+    /**
+     * a scope that stores the exit result of the ii-th forked child in results[ii]
+     * @param results the preallocated array, which must be large enough for all the children, or null
+     */
+    public TaskScope(TT [] results) {
+        this.results = results;
+    }
+
+    /** the scheduler for children that don't have one, or null for the default */
+    public TaskScope<TT> setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * add an unstarted task as a child and start it, unless the scope has been cancelled
+     * @return the task
+     */
+    public <T extends Task<TT>> T fork(T task) {
+        if (isCancelled())
+            return task;
+        int index = -1;
+        if (results != null) {
+            index = forked.getAndIncrement();
+            if (index >= results.length)
+                throw new IllegalStateException("more children than results: " + results.length);
+        }
+        if (scheduler != null && task.getScheduler()==null)
+            task.setScheduler(scheduler);
+        task.inherit();
+        task.setScope(this,index);
+        outstanding.incrementAndGet();
+        link(task);
+        task.start();
+        return task;
+    }
+
+    /** fork a child that runs body */
+    public Task.Spawn<TT> fork(Pausable.Spawn<TT> body) {
+        return fork(new Task.Spawn(body));
+    }
+
+    /** add a child to the list, cancelling it if the scope was cancelled since the check in fork */
+    private synchronized void link(Task<TT> task) {
+        Task.Cold<TT> c = task.cold();
+        c.scopeNext = children;
+        if (children != null)
+            children.cold().scopePrev = task;
+        children = task;
+        if (failure != null)
+            task.cancel();
+    }
+
+    private synchronized void unlink(Task<TT> task) {
+        Task.Cold<TT> c = task.cold();
+        if (c.scopePrev != null)
+            c.scopePrev.cold().scopeNext = c.scopeNext;
+        else
+            children = c.scopeNext;
+        if (c.scopeNext != null)
+            c.scopeNext.cold().scopePrev = c.scopePrev;
+        c.scopePrev = c.scopeNext = null;
+    }
+
+    /** called by a child when it's done, with the exception that it threw if any */
+    void done(Task<TT> child,int index,Throwable ex) {
+        unlink(child);
+        if (ex != null)
+            fail(ex);
+        else if (index >= 0)
+            results[index] = (TT) child.exitResult;
+        if (outstanding.decrementAndGet()==0) {
+            Task t = waiter;
+            if (t != null)
+                t.resume();
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void fail(Throwable ex) {
+        if (failure != null)
+            return;
+        failure = ex;
+        for (Task<TT> child = children; child != null; child = child.cold().scopeNext)
+            child.cancel();
+    }
+
+    /**
+     * cancel the scope, ie no further children are started, the running children are cancelled
+     * and join returns a CancellationException
+     */
+    public void cancel() {
+        fail(new CancellationException());
+    }
+
+    public boolean isCancelled() {
+        return failure != null;
+    }
+
+    /** the number of children that haven't finished */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public TT [] getResults() {
+        return results;
+    }
+
+    public boolean isValid(Task t) {
+        return outstanding.get() > 0;
+    }
+
+    public void detach(Task t) {
+        if (waiter==t)
+            waiter = null;
+    }
+
+    /**
+     * pause till all the children have finished. only a single task may join at a time
+     * @return the first failure, ie the exception thrown by a child or a CancellationException, or null
+     */
+    public Throwable join() throws Pausable {
+        waiter = Task.getCurrentTask();
+        while (outstanding.get() > 0)
+            Task.pause(this);
+        waiter = null;
+        return failure;
+    }
+
+    /**
+     * block the thread till all the children have finished
+     * @return the first failure, ie the exception thrown by a child or a CancellationException, or null
+     */
+    public Throwable joinb() {
+        synchronized (this) {
+            while (outstanding.get() > 0)
+                try { wait(); }
+                catch (InterruptedException ex) { throw new RuntimeException(ex); }
+        }
+        return failure;
+    }
+
+    public String toString() {
+        return "scope(" + outstanding.get() + ")";
+    }
+}
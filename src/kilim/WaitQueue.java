@@ -0,0 +1,93 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim;
+
+/**
+ * the fifo queue of paused tasks shared by FiberLock, FiberReadWriteLock and FiberSemaphore.
+ * the state of the primitive and the queue are guarded by the monitor, which is only held briefly
+ * (never across a pause), and a waiter is granted its lock or permit directly by the task that releases it,
+ * ie there's no barging, and then resumed outside the monitor
+ */
+abstract class WaitQueue {
+    /** a paused task, and the reason that it's paused */
+    static final class Waiter implements Detachable {
+        final WaitQueue queue;
+        final Task task;
+        final boolean exclusive;
+        Waiter next;
+        volatile boolean granted;
+
+        Waiter(WaitQueue queue,Task task,boolean exclusive) {
+            this.queue = queue;
+            this.task = task;
+            this.exclusive = exclusive;
+        }
+
+        public boolean isValid(Task t) {
+            return ! granted;
+        }
+
+        public void detach(Task t) {
+            queue.abandon(this);
+        }
+    }
+
+    // guarded by this
+    Waiter head, tail;
+
+    void enqueue(Waiter w) {
+        if (tail==null) head = tail = w;
+        else tail = tail.next = w;
+    }
+
+    Waiter dequeue() {
+        Waiter w = head;
+        if (w != null) {
+            head = w.next;
+            if (head==null) tail = null;
+            w.next = null;
+        }
+        return w;
+    }
+
+    private boolean unlink(Waiter w) {
+        for (Waiter prev = null, cur = head; cur != null; prev = cur, cur = cur.next)
+            if (cur==w) {
+                if (prev==null) head = cur.next;
+                else prev.next = cur.next;
+                if (tail==cur) tail = prev;
+                cur.next = null;
+                return true;
+            }
+        return false;
+    }
+
+    /** pause till the waiter, which was enqueued under the monitor, is granted */
+    static void await(Waiter w) throws Pausable {
+        while (! w.granted)
+            Task.pause(w);
+    }
+
+    /** resume a chain of granted waiters, called outside the monitor */
+    static void wake(Waiter w) {
+        while (w != null) {
+            Waiter next = w.next;
+            w.next = null;
+            w.task.resume();
+            w = next;
+        }
+    }
+
+    /** a waiting task was cancelled, so dequeue it, or give back the grant if that raced the cancellation */
+    void abandon(Waiter w) {
+        synchronized (this) {
+            if (unlink(w))
+                return;
+        }
+        if (w.granted)
+            release(w);
+    }
+
+    /** give back the lock or permit that was granted to an abandoned waiter */
+    abstract void release(Waiter w);
+}
@@ -0,0 +1,160 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.analysis;
+
+import static kilim.Constants.D_FIBER_LAST_ARG;
+import static kilim.Constants.PAUSABLE_CLASS;
+import static kilim.Constants.TASK_CLASS;
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_NATIVE;
+import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.IFGT;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.JSR;
+import static org.objectweb.asm.Opcodes.MONITORENTER;
+import static org.objectweb.asm.Opcodes.MONITOREXIT;
+import static org.objectweb.asm.Opcodes.RET;
+import static org.objectweb.asm.Opcodes.RETURN;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import kilim.Constants;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+/**
+ * preemptive weaving (see KilimContext.preempt) - buffers a pausable method, inserts a budget check
+ * before each backward jump (ie at the loop back-edges) and then replays the method to its MethodFlow
+ * <pre>
+ *     invokestatic kilim/Task.budget()I    ;; replaced by MethodWeaver with a decrement of Fiber.budget
+ *     ifgt skip
+ *     invokestatic kilim/Task.preempt()V   ;; pausable, woven like any other call site
+ *   skip:
+ *     goto loop
+ * </pre>
+ * a pausable method can't be called while holding a monitor, so back-edges in synchronized blocks are skipped
+ */
+public class BackEdges extends MethodNode {
+    static final int maxDepth = 255;
+    private final MethodVisitor target;
+
+    BackEdges(MethodVisitor target,int access,String name,String desc,String signature,String[] exceptions) {
+        super(Constants.KILIM_ASM,access,name,desc,signature,exceptions);
+        this.target = target;
+    }
+
+    /** does a method get the checks, ie is it a pausable method with code that hasn't been woven */
+    static boolean applies(int access,String name,String desc,String [] exceptions) {
+        if ((access & (ACC_ABSTRACT | ACC_NATIVE)) != 0 || name.equals("<init>") || desc.contains(D_FIBER_LAST_ARG))
+            return false;
+        if (exceptions != null)
+            for (String e : exceptions)
+                if (e.equals(PAUSABLE_CLASS)) return true;
+        return false;
+    }
+
+    @Override
+    public void visitEnd() {
+        insertChecks();
+        accept(target);
+    }
+
+    /** insert the checks, returning the number inserted */
+    int insertChecks() {
+        AbstractInsnNode [] insns = instructions.toArray();
+        if (insns.length==0)
+            return 0;
+        HashMap<LabelNode,Integer> index = new HashMap();
+        for (int ii=0; ii < insns.length; ii++)
+            if (insns[ii] instanceof LabelNode)
+                index.put((LabelNode) insns[ii],ii);
+        int [] depth = monitors(insns,index,tryCatchBlocks);
+        int num = 0;
+        for (int ii=0; ii < insns.length; ii++) {
+            AbstractInsnNode ain = insns[ii];
+            if (!(ain instanceof JumpInsnNode) || ain.getOpcode()==JSR || depth[ii] != 0)
+                continue;
+            Integer dest = index.get(((JumpInsnNode) ain).label);
+            if (dest==null || dest > ii)
+                continue;
+            LabelNode skip = new LabelNode();
+            InsnList check = new InsnList();
+            check.add(new MethodInsnNode(INVOKESTATIC,TASK_CLASS,"budget","()I",false));
+            check.add(new JumpInsnNode(IFGT,skip));
+            check.add(new MethodInsnNode(INVOKESTATIC,TASK_CLASS,"preempt","()V",false));
+            check.add(skip);
+            instructions.insertBefore(ain,check);
+            num++;
+        }
+        // the budget, plus the fiber and the decrement when MethodWeaver inlines the check
+        if (num > 0)
+            maxStack += 3;
+        return num;
+    }
+
+    /**
+     * find the number of monitors that are held before each instruction, the max over the paths,
+     * or -1 for unreachable code
+     */
+    static int [] monitors(AbstractInsnNode [] insns,HashMap<LabelNode,Integer> index,List<TryCatchBlockNode> tcbs) {
+        int [] depth = new int[insns.length];
+        Arrays.fill(depth,-1);
+        ArrayDeque<Integer> work = new ArrayDeque();
+        flow(depth,work,0,0);
+        while (! work.isEmpty()) {
+            int ii = work.poll();
+            AbstractInsnNode ain = insns[ii];
+            int opcode = ain.getOpcode();
+            int before = depth[ii];
+            int after = Math.max(before + (opcode==MONITORENTER ? 1 : opcode==MONITOREXIT ? -1 : 0),0);
+            if (tcbs != null)
+                for (TryCatchBlockNode tcb : tcbs)
+                    if (index.get(tcb.start) <= ii && ii < index.get(tcb.end))
+                        flow(depth,work,index.get(tcb.handler),Math.max(before,after));
+            if (ain instanceof JumpInsnNode) {
+                flow(depth,work,index.get(((JumpInsnNode) ain).label),after);
+                if (opcode==GOTO)
+                    continue;
+            }
+            else if (ain instanceof TableSwitchInsnNode) {
+                TableSwitchInsnNode sw = (TableSwitchInsnNode) ain;
+                flow(depth,work,index.get(sw.dflt),after);
+                for (LabelNode label : sw.labels)
+                    flow(depth,work,index.get(label),after);
+                continue;
+            }
+            else if (ain instanceof LookupSwitchInsnNode) {
+                LookupSwitchInsnNode sw = (LookupSwitchInsnNode) ain;
+                flow(depth,work,index.get(sw.dflt),after);
+                for (LabelNode label : sw.labels)
+                    flow(depth,work,index.get(label),after);
+                continue;
+            }
+            else if ((opcode >= IRETURN && opcode <= RETURN) || opcode==ATHROW || opcode==RET)
+                continue;
+            if (ii+1 < insns.length)
+                flow(depth,work,ii+1,after);
+        }
+        return depth;
+    }
+
+    private static void flow(int [] depth,ArrayDeque<Integer> work,int ii,int value) {
+        value = Math.min(value,maxDepth);
+        if (depth[ii] < value) {
+            depth[ii] = value;
+            work.add(ii);
+        }
+    }
+}
@@ -69,6 +69,8 @@ public class ClassFlow extends ClassNode {
         MethodFlow mn = new MethodFlow( this, access, name,  desc, signature,
                 exceptions, context.detector);
         super.methods.add(mn);
+        if (context.preempt && BackEdges.applies(access,name,desc,exceptions))
+            return new BackEdges(mn,access,name,desc,signature,exceptions);
         return mn;
     }
 
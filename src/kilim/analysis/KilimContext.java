@@ -5,9 +5,17 @@ import kilim.mirrors.CachedClassMirrors;
 import kilim.mirrors.Detector;
 
 public class KilimContext {
+    /** the default for preempt, set kilim.preempt or use the weaver's -p option */
+    static public boolean defaultPreempt = Boolean.getBoolean("kilim.preempt");
     static public KilimContext DEFAULT = new KilimContext();
     
     public Detector detector;
+
+    /**
+     * weave a budget check into the loop back-edges of pausable methods,
+     * so that a task that loops without pausing yields when its time slice runs out, see Task.preempt
+     */
+    public boolean preempt = defaultPreempt;
     
     public KilimContext() {
         detector = new Detector(new CachedClassMirrors());
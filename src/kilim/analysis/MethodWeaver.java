@@ -15,10 +15,14 @@ import static kilim.analysis.VMType.loadVar;
 import static org.objectweb.asm.Opcodes.ALOAD;
 import static org.objectweb.asm.Opcodes.ASTORE;
 import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.DUP_X1;
 import static org.objectweb.asm.Opcodes.GETFIELD;
 import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_1;
 import static org.objectweb.asm.Opcodes.INVOKESTATIC;
 import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.ISUB;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
 import static org.objectweb.asm.Opcodes.RETURN;
 
 import java.util.ArrayList;
@@ -42,6 +46,7 @@ import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LdcInsnNode;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
 import org.objectweb.asm.tree.TryCatchBlockNode;
 
@@ -224,6 +229,8 @@ public class MethodWeaver {
                 AbstractInsnNode ain = bb.getInstruction(i);
                 if (ain.getOpcode() == Constants.INVOKEDYNAMIC) {
                     transformIndyBootstrap(mv, ain);
+                } else if (isBudgetCheck(ain)) {
+                    genBudgetCheck(mv);
                 } else {
                     ain.accept(mv);
                 }
@@ -382,6 +389,35 @@ public class MethodWeaver {
         mv.visitFieldInsn(GETFIELD, FIBER_CLASS, "task", Constants.D_TASK);
     }
 
+    private static boolean isBudgetCheck(AbstractInsnNode ain) {
+        if (ain.getOpcode() != INVOKESTATIC) return false;
+        MethodInsnNode min = (MethodInsnNode) ain;
+        return min.owner.equals(TASK_CLASS) && min.name.equals("budget") && min.desc.equals("()I");
+    }
+
+    /*
+     * The back-edge budget check inserted by BackEdges is a call to Task.budget(),
+     * which is replaced by a decrement of the fiber's budget, leaving the new budget
+     * on the stack
+     * <pre>
+     *   load fiberVar
+     *   dup
+     *   getfield budget
+     *   iconst_1
+     *   isub
+     *   dup_x1
+     *   putfield budget
+     */
+    private void genBudgetCheck(MethodVisitor mv) {
+        loadVar(mv, TOBJECT, getFiberVar());
+        mv.visitInsn(DUP);
+        mv.visitFieldInsn(GETFIELD, FIBER_CLASS, "budget", D_INT);
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(ISUB);
+        mv.visitInsn(DUP_X1);
+        mv.visitFieldInsn(PUTFIELD, FIBER_CLASS, "budget", D_INT);
+    }
+
     private boolean hasGetCurrentTask() {
         MethodFlow mf = methodFlow;
         for (BasicBlock bb : mf.getBasicBlocks()) {
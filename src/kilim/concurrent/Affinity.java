@@ -0,0 +1,89 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.concurrent;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * linux cpu affinity without native code, ie by way of procfs, sysfs and the taskset utility.
+ * every method fails soft, eg on other platforms a bind returns false and there are no numa nodes
+ */
+public class Affinity {
+    /** the linux thread id (not the java id) of the current thread, or -1 if it can't be determined */
+    public static int threadId() {
+        try {
+            // eg "1234/task/1240"
+            String target = Files.readSymbolicLink(Paths.get("/proc/thread-self")).toString();
+            return Integer.parseInt(target.substring(target.lastIndexOf('/')+1));
+        }
+        catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * bind the current thread to a set of cpus, ie sched_setaffinity via taskset
+     * @param cpus the cpus in taskset list format, eg "0-3,8"
+     * @return true if the thread was bound
+     */
+    public static boolean bind(String cpus) {
+        int tid = threadId();
+        if (tid < 0)
+            return false;
+        try {
+            Process proc = new ProcessBuilder("taskset","-p","-c",cpus,Integer.toString(tid))
+                    .redirectErrorStream(true)
+                    .start();
+            InputStream in = proc.getInputStream();
+            byte [] buffer = new byte[256];
+            while (in.read(buffer) >= 0) {}
+            return proc.waitFor()==0;
+        }
+        catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /** the cpus of each numa node in taskset list format, ordered by node, or empty if unknown */
+    public static String [] numaNodes() {
+        TreeMap<Integer,String> nodes = new TreeMap();
+        File [] dirs = new File("/sys/devices/system/node").listFiles();
+        if (dirs != null)
+            for (File dir : dirs) {
+                String name = dir.getName();
+                if (! name.matches("node[0-9]+"))
+                    continue;
+                try {
+                    Path path = new File(dir,"cpulist").toPath();
+                    String cpus = new String(Files.readAllBytes(path)).trim();
+                    if (! cpus.isEmpty())
+                        nodes.put(Integer.parseInt(name.substring(4)),cpus);
+                }
+                catch (Exception ex) {}
+            }
+        return nodes.values().toArray(new String[0]);
+    }
+
+    /**
+     * parse a partition spec, ie "numa" for one partition per numa node
+     * or cpu lists in taskset format separated by colons, eg "0-7,16-23:8-15,24-31"
+     * @return the cpu list of each partition, or null if the spec is null or empty
+     */
+    public static String [] parse(String spec) {
+        if (spec==null || spec.trim().isEmpty())
+            return null;
+        if (spec.trim().equals("numa"))
+            return numaNodes();
+        ArrayList<String> cpus = new ArrayList();
+        for (String word : spec.split(":"))
+            if (! word.trim().isEmpty())
+                cpus.add(word.trim());
+        return cpus.toArray(new String[0]);
+    }
+}
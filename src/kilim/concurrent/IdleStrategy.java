@@ -0,0 +1,109 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * what a scheduler worker does when it runs out of work before it parks (which costs a futex wakeup when
+ * the next task arrives). in the spirit of MPSCQueue.BackOffStrategy, a worker calls idle repeatedly with
+ * the returned round, which busy-spins, then calls Thread.onSpinWait, then yields and finally returns -1,
+ * at which point the worker should park. spinning trades cpu for latency
+ */
+public class IdleStrategy {
+    /** park immediately, ie the historical behavior */
+    public static final IdleStrategy PARK = new IdleStrategy(0,0,0);
+    /** spin briefly before parking, a modest amount of cpu for a lower latency at moderate load */
+    public static final IdleStrategy SPIN_PARK = new IdleStrategy(100,2000,20);
+    /** never park, ie burn a core per idle worker for the lowest latency */
+    public static final IdleStrategy SPIN = new IdleStrategy(100,Integer.MAX_VALUE-100,0);
+
+    public final int spins, waits, yields;
+    private final int limitWaits, limitYields;
+
+    /**
+     * create a strategy that busy-spins, then calls Thread.onSpinWait, then yields and then parks
+     * @param spins the number of rounds to busy-spin
+     * @param waits the number of rounds to call Thread.onSpinWait (a busy-spin on java 8)
+     * @param yields the number of rounds to yield
+     */
+    public IdleStrategy(int spins,int waits,int yields) {
+        this.spins = spins;
+        this.waits = waits;
+        this.yields = yields;
+        limitWaits = sum(spins,waits);
+        limitYields = sum(limitWaits,yields);
+    }
+
+    private static int sum(int x,int y) {
+        long val = (long) x + y;
+        return (int) Math.min(val,Integer.MAX_VALUE);
+    }
+
+    /**
+     * back off for one round
+     * @param round the value returned by the previous call, or zero for the first call
+     * @return the next round, or -1 if the caller should park
+     */
+    public int idle(int round) {
+        if (round < spins) {}
+        else if (round < limitWaits) onSpinWait();
+        else if (round < limitYields) Thread.yield();
+        else return -1;
+        return round==Integer.MAX_VALUE-1 ? spins : round+1;
+    }
+
+    public String toString() {
+        return "IdleStrategy(" + spins + "," + waits + "," + yields + ")";
+    }
+
+    private static final MethodHandle spinWait;
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.methodType(void.class);
+        MethodHandle handle;
+        try {
+            handle = lookup.findStatic(Thread.class,"onSpinWait",type);
+        }
+        catch (Exception ex) {
+            try { handle = lookup.findStatic(IdleStrategy.class,"nop",type); }
+            catch (Exception ex2) { throw new RuntimeException(ex2); }
+        }
+        spinWait = handle;
+    }
+    private static void nop() {}
+
+    /** call Thread.onSpinWait if it's available, ie java 9 and later, and otherwise do nothing */
+    public static void onSpinWait() {
+        try { spinWait.invokeExact(); }
+        catch (Throwable ex) {}
+    }
+
+    /**
+     * get a strategy from a system property, either one of PARK, SPIN_PARK or SPIN or a comma separated triple
+     * of spins, waits and yields, eg "100,2000,20"
+     * @param propertyName the name of the property
+     * @param defaultS the strategy to use if the property is missing or can't be parsed
+     * @return the strategy
+     */
+    public static IdleStrategy getStrategy(String propertyName,IdleStrategy defaultS) {
+        String val = System.getProperty(propertyName);
+        if (val==null) return defaultS;
+        val = val.trim();
+        if (val.equals("PARK")) return PARK;
+        if (val.equals("SPIN_PARK")) return SPIN_PARK;
+        if (val.equals("SPIN")) return SPIN;
+        try {
+            String [] parts = val.split(",");
+            return new IdleStrategy(
+                    Integer.parseInt(parts[0].trim()),
+                    Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()));
+        }
+        catch (Exception ex) {
+            return defaultS;
+        }
+    }
+}
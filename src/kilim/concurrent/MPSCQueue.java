@@ -132,8 +132,8 @@ public class MPSCQueue<E> extends MPSCQueueL3Pad<E> {
 		return UnsafeAccess.UNSAFE.getLongVolatile(this, HEAD_OFFSET);
 	}
 
-	private void lazySetHead(long l) {
-		UnsafeAccess.UNSAFE.putOrderedLong(this, HEAD_OFFSET, l);
+	private void setHead(long l) {
+		UnsafeAccess.UNSAFE.putLongVolatile(this, HEAD_OFFSET, l);
 	}
 
 	private long getTail() {
@@ -176,7 +176,9 @@ public class MPSCQueue<E> extends MPSCQueueL3Pad<E> {
 				missCount = CAS_BACKOFF.backoff(missCount);
 			}
 		}
-		UnsafeAccess.UNSAFE.putOrderedObject(buffer,
+		// a volatile (not ordered) store, so that a subsequent load of a
+		// waiting consumer can't be reordered before it, see MailboxMPSC
+		UnsafeAccess.UNSAFE.putObjectVolatile(buffer,
 				elementOffsetInBuffer(currentTail), e);
 		return true;
 	}
@@ -202,7 +204,7 @@ public class MPSCQueue<E> extends MPSCQueueL3Pad<E> {
 			return null;
 		}
 		UnsafeAccess.UNSAFE.putObject(buffer, offset, null);
-		lazySetHead(head + 1);
+		setHead(head + 1);
 		return e;
 	}
 
@@ -246,7 +248,7 @@ public class MPSCQueue<E> extends MPSCQueueL3Pad<E> {
 
 	@SuppressWarnings("unchecked")
 	private E getElement(long index) {
-		return (E) UnsafeAccess.UNSAFE.getObject(buffer,
+		return (E) UnsafeAccess.UNSAFE.getObjectVolatile(buffer,
 				elementOffsetInBuffer(index));
 	}
 
@@ -256,8 +258,8 @@ public class MPSCQueue<E> extends MPSCQueueL3Pad<E> {
 		long currentConsumerIndexAfter = getHead();
 		do {
 			currentConsumerIndexBefore = currentConsumerIndexAfter;
-			currentProducerIndex = getHead();
-			currentConsumerIndexAfter = getTail();
+			currentProducerIndex = getTail();
+			currentConsumerIndexAfter = getHead();
 		} while (currentConsumerIndexBefore != currentConsumerIndexAfter);
 		return (int) (currentProducerIndex - currentConsumerIndexBefore);
 	}
@@ -0,0 +1,105 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.concurrent;
+
+import static kilim.concurrent.UnsafeAccess.UNSAFE;
+
+abstract class SPMCQueueL0Pad {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SPMCQueueHeadField extends SPMCQueueL0Pad {
+    protected volatile long head;
+}
+
+abstract class SPMCQueueL1Pad extends SPMCQueueHeadField {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class SPMCQueueTailField extends SPMCQueueL1Pad {
+    protected volatile long tail;
+}
+
+abstract class SPMCQueueL2Pad extends SPMCQueueTailField {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * a bounded lock-free fifo with a single producer and multiple consumers, ie the run queue of a work-stealing
+ * worker. only the owning thread may offer, any thread may poll, consumers race on head with a cas.
+ * slots are not cleared by poll (the producer may already be refilling the slot) so up to capacity stale
+ * references can be retained
+ */
+@SuppressWarnings("restriction")
+public class SPMCQueue<E> extends SPMCQueueL2Pad {
+    private static final long HEAD_OFFSET;
+    private static final long TAIL_OFFSET;
+    private static final long ARRAY_BASE;
+    private static final int ELEMENT_SHIFT;
+    static {
+        try {
+            HEAD_OFFSET = UNSAFE.objectFieldOffset(SPMCQueueHeadField.class.getDeclaredField("head"));
+            TAIL_OFFSET = UNSAFE.objectFieldOffset(SPMCQueueTailField.class.getDeclaredField("tail"));
+            ARRAY_BASE = UNSAFE.arrayBaseOffset(Object[].class);
+            int scale = UNSAFE.arrayIndexScale(Object[].class);
+            if (4 == scale) ELEMENT_SHIFT = 2;
+            else if (8 == scale) ELEMENT_SHIFT = 3;
+            else throw new IllegalStateException("Unknown pointer size");
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected final Object[] buffer;
+    protected final int mask;
+
+    public SPMCQueue(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity: " + capacity + " cannot be less then 1");
+        capacity = MPSCQueue.findNextPositivePowerOfTwo(capacity);
+        buffer = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private long offset(long index) {
+        return ARRAY_BASE + ((index & mask) << ELEMENT_SHIFT);
+    }
+
+    /** add an element, returning false if full. only the owning thread may call this method */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException("Null is not a valid element");
+        long t = tail;
+        if (t - head >= buffer.length)
+            return false;
+        UNSAFE.putObject(buffer,offset(t),e);
+        UNSAFE.putOrderedLong(this,TAIL_OFFSET,t+1);
+        return true;
+    }
+
+    /** remove the eldest element, returning null if empty. safe to call from any thread */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        while (true) {
+            long h = head;
+            if (h >= tail)
+                return null;
+            E e = (E) UNSAFE.getObjectVolatile(buffer,offset(h));
+            if (UNSAFE.compareAndSwapLong(this,HEAD_OFFSET,h,h+1))
+                return e;
+        }
+    }
+
+    public boolean isEmpty() {
+        return head >= tail;
+    }
+
+    public int size() {
+        long h = head;
+        return (int) Math.max(0,tail-h);
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
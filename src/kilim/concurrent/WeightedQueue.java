@@ -0,0 +1,236 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a blocking queue with a fixed number of priority levels, drained by weight (deficit round robin),
+ * ie each level has a credit that starts at its weight and is consumed by each poll from that level,
+ * the highest level with both elements and credit is polled first, and the credits are refilled once no
+ * non-empty level has any credit left. so with all levels busy, level ii gets weights[ii] of each round
+ * and a low level is slowed but never starved. level zero is the highest
+ * @param <E> the element type
+ */
+public class WeightedQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    protected final ArrayDeque<E> [] levels;
+    protected final int [] weights;
+    private final int [] credits;
+    private final int capacity;
+    private volatile int size;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * create the queue
+     * @param capacity the maximum number of elements, or unbounded if less than one
+     * @param weights the weight of each level, each must be positive
+     */
+    public WeightedQueue(int capacity,int ... weights) {
+        this.capacity = capacity <= 0 ? Integer.MAX_VALUE : capacity;
+        this.weights = weights.clone();
+        credits = weights.clone();
+        levels = new ArrayDeque[weights.length];
+        for (int ii=0; ii < weights.length; ii++) {
+            if (weights[ii] <= 0)
+                throw new IllegalArgumentException("weights must be positive");
+            levels[ii] = new ArrayDeque();
+        }
+    }
+
+    /** the level to queue an element at, the default is the lowest */
+    protected int level(E e) {
+        return levels.length-1;
+    }
+
+    private void enqueue(E e) {
+        int level = level(e);
+        if (level < 0) level = 0;
+        if (level >= levels.length) level = levels.length-1;
+        levels[level].add(e);
+        size++;
+        notEmpty.signal();
+    }
+
+    private E dequeue() {
+        int found = -1;
+        for (int ii=0; ii < levels.length; ii++) {
+            if (levels[ii].isEmpty()) continue;
+            if (found < 0) found = ii;
+            if (credits[ii] > 0) {
+                found = ii;
+                break;
+            }
+        }
+        if (found < 0)
+            return null;
+        if (credits[found]==0)
+            System.arraycopy(weights,0,credits,0,weights.length);
+        credits[found]--;
+        size--;
+        notFull.signal();
+        return levels[found].poll();
+    }
+
+    private static void checkNotNull(Object e) {
+        if (e==null) throw new NullPointerException();
+    }
+
+    public boolean offer(E e) {
+        checkNotNull(e);
+        lock.lock();
+        try {
+            if (size >= capacity)
+                return false;
+            enqueue(e);
+            return true;
+        }
+        finally { lock.unlock(); }
+    }
+
+    public boolean offer(E e,long timeout,TimeUnit unit) throws InterruptedException {
+        checkNotNull(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity) {
+                if (nanos <= 0)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e);
+            return true;
+        }
+        finally { lock.unlock(); }
+    }
+
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity)
+                notFull.await();
+            enqueue(e);
+        }
+        finally { lock.unlock(); }
+    }
+
+    public E poll() {
+        // size is volatile, so an empty queue can be checked without the lock
+        if (size==0)
+            return null;
+        lock.lock();
+        try { return dequeue(); }
+        finally { lock.unlock(); }
+    }
+
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size==0)
+                notEmpty.await();
+            return dequeue();
+        }
+        finally { lock.unlock(); }
+    }
+
+    public E poll(long timeout,TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size==0) {
+                if (nanos <= 0)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        }
+        finally { lock.unlock(); }
+    }
+
+    /** the element that would be polled next, ignoring the credits */
+    public E peek() {
+        lock.lock();
+        try {
+            for (ArrayDeque<E> level : levels)
+                if (! level.isEmpty()) return level.peek();
+            return null;
+        }
+        finally { lock.unlock(); }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size==0;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size;
+    }
+
+    public boolean remove(Object o) {
+        if (o==null) return false;
+        lock.lock();
+        try {
+            for (ArrayDeque<E> level : levels)
+                if (level.remove(o)) {
+                    size--;
+                    notFull.signal();
+                    return true;
+                }
+            return false;
+        }
+        finally { lock.unlock(); }
+    }
+
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c,Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super E> c,int maxElements) {
+        checkNotNull(c);
+        if (c==this) throw new IllegalArgumentException();
+        lock.lock();
+        try {
+            int num = 0;
+            for (E e; num < maxElements && (e = dequeue()) != null; num++)
+                c.add(e);
+            return num;
+        }
+        finally { lock.unlock(); }
+    }
+
+    /** a snapshot iterator in level order, remove is supported */
+    public Iterator<E> iterator() {
+        final ArrayList<E> copy = new ArrayList();
+        lock.lock();
+        try {
+            for (ArrayDeque<E> level : levels)
+                copy.addAll(level);
+        }
+        finally { lock.unlock(); }
+        final Iterator<E> it = copy.iterator();
+        return new Iterator<E>() {
+            E last;
+            public boolean hasNext() { return it.hasNext(); }
+            public E next() { return last = it.next(); }
+            public void remove() {
+                if (last==null) throw new IllegalStateException();
+                WeightedQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+}
@@ -21,6 +21,8 @@ TimerBlast2 should take on the order of a second to print each line
 under heavy external load it will hang
 attach a debugger and explore the conditions causing the task to not complete
 
+both run on the default TimerService backend, the heap, set -Dkilim.TimerService.wheel=true to use TimerWheel
+
 */
 
 public class TimerBlast extends Task {
@@ -13,8 +13,11 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.AbstractSelectableChannel;
 
+import kilim.Detachable;
 import kilim.Mailbox;
 import kilim.Pausable;
+import kilim.PauseReason;
+import kilim.Select;
 import kilim.Task;
 
 /**
@@ -43,13 +46,41 @@ public class EndPoint { // Mailbox for receiving socket ready events.
      */
     public AbstractSelectableChannel sockch;
 
-    private Mailbox<SockEvent> box = new Mailbox<SockEvent>();
+    private Mailbox<SockEvent> box;
     private NioSelectorScheduler sched;
 
+    // the loop that owns the endpoint, only used with NioLoopScheduler
+    NioLoopScheduler loops;
+    int loop;
+    SelectionKey key;
+    private Task waiter;
+    private volatile boolean waiting;
+    private PauseReason readiness;
+
 
     public EndPoint(NioSelectorScheduler nio,AbstractSelectableChannel ch) {
         this.sockch = ch;
         this.sched = nio;
+        box = new Mailbox<SockEvent>();
+    }
+
+    /**
+     * create an endpoint that registers interest directly with the selector of one of the loops
+     * @param loops the scheduler
+     * @param loop the index of the loop that owns the endpoint, the endpoint's task runs on this loop
+     * @param ch the channel
+     */
+    public EndPoint(NioLoopScheduler loops,int loop,AbstractSelectableChannel ch) {
+        this.sockch = ch;
+        this.loops = loops;
+        this.loop = loop;
+        readiness = new Detachable() {
+            public boolean isValid(Task t) { return waiting; }
+            public void detach(Task t) {
+                waiter = null;
+                waiting = false;
+            }
+        };
     }
 
     public SocketChannel dataChannel() {
@@ -178,21 +209,90 @@ public class EndPoint { // Mailbox for receiving socket ready events.
 
     // TODO. Need to introduce session timeouts for read and write
     public void pauseUntilReadable() throws Pausable, IOException {
+        if (loops != null) { pauseUntil(SelectionKey.OP_READ); return; }
         SockEvent ev = new SockEvent(box, sockch, SelectionKey.OP_READ);
         sched.regbox.putnb(ev);
         box.get();
     }
     public void pauseUntilWritable() throws Pausable, IOException {
+        if (loops != null) { pauseUntil(SelectionKey.OP_WRITE); return; }
         SockEvent ev = new SockEvent(box, sockch, SelectionKey.OP_WRITE);
         sched.regbox.putnb(ev);
         box.get();
     }
     public void pauseUntilAcceptable() throws Pausable, IOException {
+        if (loops != null) { pauseUntil(SelectionKey.OP_ACCEPT); return; }
         SockEvent ev = new SockEvent(box, sockch, SelectionKey.OP_ACCEPT);
         sched.regbox.putnb(ev);
         box.get();
     }
 
+    /** register interest with the loop's selector and pause till the loop fires the endpoint */
+    private void pauseUntil(int ops) throws Pausable, IOException {
+        waiter = Task.getCurrentTask();
+        waiting = true;
+        loops.register(this,ops);
+        Task.pause(readiness);
+    }
+
+    /**
+     * a source for a Select that's ready when the channel is ready for ops, ie the analogue of pauseUntilReadable
+     * etc for a task that also waits on other sources. interest is registered with the selector when a select
+     * first waits on the source, and again after each time that the source is selected
+     * @param ops the SelectionKey interest ops
+     */
+    public Select.Source selectable(final int ops) {
+        return new Select.Source() {
+            boolean armed;
+
+            public boolean isReady() {
+                return armed && (loops != null ? ! waiting : box.hasMessage());
+            }
+
+            public void selected() {
+                armed = false;
+                if (loops==null)
+                    box.getnb();
+            }
+
+            public void subscribe(Task t) {
+                if (loops != null) {
+                    waiter = t;
+                    if (armed)
+                        return;
+                    armed = true;
+                    waiting = true;
+                    // a failure to register is reported as readiness, so the caller's io surfaces the error
+                    try { loops.register(EndPoint.this,ops); }
+                    catch (IOException ex) { fire(); }
+                }
+                else {
+                    if (! armed) {
+                        armed = true;
+                        sched.regbox.putnb(new SockEvent(box,sockch,ops));
+                    }
+                    box.addMsgAvailableListener(t);
+                }
+            }
+
+            public void unsubscribe(Task t) {
+                if (loops != null)
+                    waiter = null;
+                else
+                    box.removeMsgAvailableListener(t);
+            }
+        };
+    }
+
+    /** called by the loop when the channel is ready, resume the waiting task */
+    void fire() {
+        Task task = waiter;
+        waiter = null;
+        waiting = false;
+        if (task != null)
+            task.resume();
+    }
+
 
     /**
      * Write a file to the endpoint using {@link FileChannel#transferTo}
@@ -0,0 +1,326 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.nio.NioSelectorScheduler.SessionFactory;
+import kilim.timerservice.Timer;
+import kilim.timerservice.TimerService;
+import kilim.timerservice.TimerService.WatchdogContext;
+import kilim.timerservice.TimerService.WatchdogTask;
+
+/**
+ * an event-loop scheduler, ie each worker thread (a loop) owns a Selector that it polls between batches of tasks.
+ * an EndPoint that belongs to a loop registers interest directly with that loop's selector, and a session
+ * woken by a readiness event is run in place on the loop thread, ie without the mailbox and the cross-thread
+ * wakeup of NioSelectorScheduler, whose single selector thread limits the connection rate.
+ * connections are spread across the loops (round robin) at accept time and a session stays on its loop,
+ * other tasks run on the loop that schedules them, or round robin if scheduled from another thread
+ *
+ * Usage is as follows:
+ * <pre>
+ *  NioLoopScheduler loops = new NioLoopScheduler(0);
+ *  loops.listen(8080, MySessionTask.class);
+ * </pre>
+ */
+public class NioLoopScheduler extends Scheduler implements WatchdogContext {
+    /** the maximum number of tasks to run between polls of the selector */
+    static final int batch = 64;
+
+    protected final Loop [] loops;
+    protected final AtomicInteger count = new AtomicInteger(0);
+    protected final TimerService timerService;
+    private final AtomicInteger rover = new AtomicInteger(0);
+
+    /**
+     * create the scheduler
+     * @param numThreads the number of loops, ie threads and selectors, or use the default if less than one
+     */
+    public NioLoopScheduler(int numThreads) throws IOException {
+        if (numThreads <= 0)
+            numThreads = defaultNumberThreads;
+        loops = new Loop[numThreads];
+        for (int ii=0; ii < numThreads; ii++)
+            loops[ii] = new Loop(ii);
+        timerService = new TimerService(this);
+        for (Loop loop : loops)
+            loop.start();
+    }
+
+    /**
+     * accept connections on a port (on the first loop), running a new session for each on the next loop
+     * @return the port, ie the assigned port if port is zero
+     */
+    public int listen(int port,Class<? extends SessionTask> sessionClass) throws IOException {
+        Acceptor t = new Acceptor(port);
+        t.sessionClass = sessionClass;
+        return listen(t);
+    }
+
+    /**
+     * accept connections on a port (on the first loop), running a new session for each on the next loop
+     * @return the port, ie the assigned port if port is zero
+     */
+    public int listen(int port,SessionFactory factory) throws IOException {
+        Acceptor t = new Acceptor(port);
+        t.factory = factory;
+        return listen(t);
+    }
+
+    private int listen(Acceptor t) {
+        t.setScheduler(this);
+        t.start();
+        return t.port;
+    }
+
+    /** the next loop to assign work to, round robin */
+    protected int next() {
+        return (rover.getAndIncrement() & Integer.MAX_VALUE) % loops.length;
+    }
+
+    /** return the loop running on the current thread, or null if the thread doesn't belong to this scheduler */
+    protected Loop current() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Loop && ((Loop) thread).owner()==this)
+            return (Loop) thread;
+        return null;
+    }
+
+    public void schedule(int index,Task t) {
+        count.incrementAndGet();
+        Loop loop;
+        EndPoint ep = t instanceof SessionTask ? ((SessionTask) t).endpoint : null;
+        if (index >= 0)
+            loop = loops[index];
+        else if (ep != null && ep.loops==this)
+            loop = loops[ep.loop];
+        else if ((loop = current())==null)
+            loop = loops[next()];
+        loop.add(t);
+    }
+
+    public void publish(WatchdogTask dog) {
+        count.incrementAndGet();
+        loops[next()].add(dog);
+    }
+
+    public void scheduleTimer(Timer t) {
+        timerService.submit(t);
+    }
+
+    public boolean isEmpty() {
+        return count.get()==0;
+    }
+
+    public boolean isEmptyish() {
+        for (Loop loop : loops)
+            if (! loop.isEmpty()) return false;
+        return true;
+    }
+
+    public int numThreads() { return loops.length; }
+
+    public void idledown() {
+        awaitIdle(0);
+    }
+
+    protected boolean isIdle() {
+        return resolved(timerService,this);
+    }
+
+    public void shutdown() {
+        super.shutdown();
+        for (Loop loop : loops)
+            loop.sel.wakeup();
+        timerService.shutdown();
+    }
+
+    /** register interest in ops for an endpoint with its loop's selector, called by the endpoint's task */
+    void register(final EndPoint ep,final int ops) throws IOException {
+        final Loop loop = loops[ep.loop];
+        if (Thread.currentThread()==loop) {
+            loop.register(ep,ops);
+            return;
+        }
+        // the task isn't running on its loop (eg a different scheduler), so hand the registration to the loop
+        count.incrementAndGet();
+        loop.add(new Runnable() {
+            public void run() {
+                try { loop.register(ep,ops); }
+                catch (IOException ex) { ep.fire(); }
+            }
+        });
+    }
+
+    private static final AtomicIntegerFieldUpdater<Loop> selectingUpdater
+            = AtomicIntegerFieldUpdater.newUpdater(Loop.class,"selecting");
+
+    protected class Loop extends Thread {
+        protected final int index;
+        protected final Selector sel;
+        /** tasks scheduled from this thread, only accessed by this thread */
+        protected final ArrayDeque<Runnable> local = new ArrayDeque();
+        /** tasks scheduled from other threads */
+        protected final ConcurrentLinkedQueue<Runnable> inbox = new ConcurrentLinkedQueue();
+        volatile int selecting;
+
+        Loop(int index) throws IOException {
+            this.index = index;
+            sel = Selector.open();
+            setDaemon(true);
+            setName("kilim-loop-" + index);
+        }
+
+        NioLoopScheduler owner() { return NioLoopScheduler.this; }
+
+        void add(Runnable runnable) {
+            if (Thread.currentThread()==this)
+                local.add(runnable);
+            else {
+                inbox.add(runnable);
+                wake();
+            }
+        }
+
+        /** wake the selector if the loop is blocked in select */
+        void wake() {
+            if (selecting==1 && selectingUpdater.compareAndSet(this,1,0))
+                sel.wakeup();
+        }
+
+        boolean isEmpty() {
+            return local.isEmpty() && inbox.isEmpty();
+        }
+
+        void register(EndPoint ep,int ops) throws IOException {
+            SelectionKey key = ep.key;
+            if (key==null || ! key.isValid())
+                ep.key = ep.sockch.register(sel,ops,ep);
+            else
+                key.interestOps(ops);
+        }
+
+        public void run() {
+            while (! isShutdown()) {
+                for (int ii=0; ii < batch; ii++) {
+                    Runnable runnable = local.poll();
+                    if (runnable==null)
+                        runnable = inbox.poll();
+                    if (runnable==null)
+                        break;
+                    execute(runnable);
+                }
+                try {
+                    poll();
+                }
+                catch (IOException ex) {
+                    log(this,ex);
+                }
+            }
+            close();
+        }
+
+        protected void execute(Runnable runnable) {
+            if (runnable instanceof Task)
+                tidRelay((Task) runnable,index);
+            try {
+                runnable.run();
+            }
+            catch (Throwable ex) {
+                log(this,ex);
+            }
+            timerService.trigger(NioLoopScheduler.this);
+            if (count.decrementAndGet()==0)
+                quiescent();
+        }
+
+        /** poll the selector, blocking if there are no tasks, and resume the sessions that are ready */
+        void poll() throws IOException {
+            int num;
+            if (! isEmpty())
+                num = sel.selectNow();
+            else {
+                selecting = 1;
+                // recheck after advertising, a producer either sees us as selecting or we see its task
+                if (isEmpty() && ! isShutdown())
+                    num = sel.select();
+                else
+                    num = sel.selectNow();
+                selecting = 0;
+            }
+            if (num==0)
+                return;
+            Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (key.isValid())
+                    key.interestOps(0);
+                ((EndPoint) key.attachment()).fire();
+            }
+        }
+
+        /** close the listening sockets and the selector on shutdown */
+        void close() {
+            for (SelectionKey key : sel.keys()) {
+                key.cancel();
+                if (key.channel() instanceof ServerSocketChannel)
+                    try { key.channel().close(); } catch (IOException ignore) {}
+            }
+            try { sel.close(); } catch (IOException ignore) {}
+        }
+    }
+
+    class Acceptor extends SessionTask {
+        Class<? extends SessionTask> sessionClass;
+        SessionFactory               factory;
+        ServerSocketChannel          ssc;
+        int                          port;
+
+        Acceptor(int port) throws IOException {
+            ssc = ServerSocketChannel.open();
+            ssc.socket().setReuseAddress(true);
+            ssc.socket().bind(new InetSocketAddress(port),NioSelectorScheduler.LISTEN_BACKLOG);
+            ssc.configureBlocking(false);
+            endpoint = new EndPoint(NioLoopScheduler.this,next(),ssc);
+            this.port = ssc.socket().getLocalPort();
+        }
+
+        public String toString() {
+            return "Acceptor: " + port;
+        }
+
+        public void execute() throws Pausable, Exception {
+            while (true) {
+                SocketChannel ch = ssc.accept();
+                if (isShutdown()) {
+                    ssc.close();
+                    break;
+                }
+                if (ch == null)
+                    endpoint.pauseUntilAcceptable();
+                else {
+                    ch.socket().setTcpNoDelay(true);
+                    ch.configureBlocking(false);
+                    SessionTask task = (factory==null) ? sessionClass.newInstance() : factory.get();
+                    task.endpoint = new EndPoint(NioLoopScheduler.this,next(),ch);
+                    task.setScheduler(NioLoopScheduler.this);
+                    task.start();
+                }
+            }
+        }
+    }
+}
@@ -10,7 +10,9 @@ import kilim.concurrent.VolatileBoolean;
 public class Timer implements Comparable<Timer> {
     private volatile long  nextExecutionTime; 
     public VolatileBoolean onQueue = new VolatileBoolean(false);  //true if timer is already on timerqueue
-    public volatile boolean onHeap = false; //true if timer is already on timerHeap
+    public volatile boolean onHeap = false; //true if timer is already on timerHeap (or the wheel, see TimerStore)
+    /** the neighbors in a TimerWheel slot, the slot is stored in index */
+    Timer prev, next;
 
     public static final int                TIMED_OUT        = 3;
     public static final Event              timedOut         = new Event(TIMED_OUT);
@@ -4,7 +4,7 @@ package kilim.timerservice;
 
 import java.util.Arrays;
 
-public class TimerPriorityHeap {
+public class TimerPriorityHeap implements TimerStore {
 	private Timer[] queue;
 	private int size = 0;
 
@@ -33,10 +33,34 @@ public class TimerPriorityHeap {
 		if (size + 1 == queue.length)
 			queue = Arrays.copyOf(queue, 2 * queue.length);
 		queue[++size] = task;
+		task.index = size;
 		heapifyUp(size);
 
 	}
 
+	public void schedule(Timer t) {
+		if (!t.onHeap) {
+			add(t);
+			t.onHeap = true;
+		}
+		else
+			reschedule(t.index);
+	}
+
+	public long expire(long currentTime) {
+		while (!isEmpty()) {
+			Timer t = peek();
+			long executionTime = t.getExecutionTime();
+			if (executionTime > currentTime)
+				return executionTime;
+			t.onHeap = false;
+			poll();
+			if (executionTime >= 0)
+				t.es.onEvent(null,Timer.timedOut);
+		}
+		return 0L;
+	}
+
 	public void reschedule(int i) {
 		heapifyUp(i);
 		heapifyDown(i);
@@ -83,9 +107,27 @@ public class TimerPriorityHeap {
 
 	}
 
-	// private void heapify() {
-	// for (int i = size / 2; i >= 1; i--)
-	// heapifyDown(i);
-	// }
+	/** remove the timers that are no longer pending, ie cancelled or completed, and restore the heap */
+	public void purge() {
+		int num = 0;
+		for (int i = 1; i <= size; i++) {
+			Timer t = queue[i];
+			if (t.getExecutionTime() < 0)
+				t.onHeap = false;
+			else {
+				queue[++num] = t;
+				t.index = num;
+			}
+		}
+		for (int i = num + 1; i <= size; i++)
+			queue[i] = null;
+		size = num;
+		heapify();
+	}
+
+	private void heapify() {
+		for (int i = size / 2; i >= 1; i--)
+			heapifyDown(i);
+	}
 
 }
@@ -8,14 +8,11 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
-import kilim.Event;
-import kilim.EventPublisher;
-import kilim.EventSubscriber;
 import kilim.concurrent.MPSCQueue;
 
 public class TimerService {
     private final MPSCQueue<Timer> timerQueue;
-    private final TimerPriorityHeap timerHeap;
+    private final TimerStore timers;
     private ScheduledExecutorService timerProxy;
     final private Lock lock;
     private static boolean debugStats = false;
@@ -25,8 +22,19 @@ public class TimerService {
     // the number of watchdogs set immediately (ie, max retry), scheduled, and scheduled+run
     private static volatile int c1, c2, c3;
 
+    /**
+     * the backend for new services, a TimerPriorityHeap by default or a TimerWheel if kilim.TimerService.wheel is set.
+     * the wheel has constant time insertion and rescheduling, which pays off with many timers that are
+     * frequently moved, eg per-connection timeouts that are reset by each request
+     */
+    public static boolean useWheel = Boolean.getBoolean("kilim.TimerService.wheel");
+
     public TimerService(WatchdogContext doghouse) {
-        timerHeap = new TimerPriorityHeap();
+        this(doghouse,useWheel ? new TimerWheel() : new TimerPriorityHeap());
+    }
+
+    public TimerService(WatchdogContext doghouse,TimerStore store) {
+        timers = store;
         timerQueue = new MPSCQueue<Timer>(Integer.getInteger("kilim.maxpendingtimers",100000));
         timerProxy = Executors.newSingleThreadScheduledExecutor(factory);
         lock = new java.util.concurrent.locks.ReentrantLock();
@@ -63,34 +71,34 @@ public class TimerService {
         }
     }
 
-    private boolean empty() { return timerHeap.isEmpty() && timerQueue.isEmpty(); }
+    private boolean empty() { return timers.isEmpty() && timerQueue.isEmpty(); }
     
     /**
      * return true if empty at a particular moment during the call
      *  allowing false negatives if operations are ongoing
+     * @deprecated use isIdle, which doesn't route a synthetic timer through the watchdog
      */
     public boolean isEmptyLazy(WatchdogContext executor) {
-        return empty() && new Empty().check(executor);
+        return executor.isEmpty() && isIdle(executor);
     }
-    private class Empty implements EventSubscriber {
-        boolean empty, done;
-        WatchdogContext executor;
-        @Override
-        public void onEvent(EventPublisher ep,Event e) {
-            empty = executor.isEmpty() && empty();
-            done = true;
-            synchronized (this) { this.notify(); }
-        }
-        boolean check(WatchdogContext executor) {
-            this.executor = executor;
-            if (! timerQueue.offer(new kilim.timerservice.Timer(this)))
-                return false;
-            trigger(executor);
-            synchronized (this) {
-                try { if (!done) this.wait(); } catch (InterruptedException ex) {}
-            }
-            return empty;
-        }
+
+    /**
+     * are there no pending timers, firing any that have expired and purging any that have been cancelled.
+     * blocks while another thread is triggering
+     * @param doghouse the context to publish the watchdog to if timers remain
+     * @return true if there were no pending timers at a moment during the call
+     */
+    public boolean isIdle(WatchdogContext doghouse) {
+        if (empty())
+            return true;
+        long clock = System.currentTimeMillis(), sched;
+        lock.lock();
+        try {
+            sched = doTrigger(clock);
+            timers.purge();
+        } finally { lock.unlock(); }
+        watch(doghouse,false,sched,clock);
+        return empty();
     }
     
     public void trigger(final WatchdogContext doghouse) {
@@ -106,11 +114,20 @@ public class TimerService {
             } finally { lock.unlock(); }
             clock = System.currentTimeMillis();
         }
+        watch(doghouse,retry==maxtry,sched,clock);
+    }
+
+    /**
+     * make sure that a watchdog will trigger the timers if the doghouse is idle
+     * @param busy the timers are being churned, ie retry immediately
+     * @param sched the time of the next timer, or zero if there are none
+     */
+    private void watch(WatchdogContext doghouse,boolean busy,long sched,long clock) {
         if (! doghouse.isEmptyish()) return;
 
         WatchdogTask dragon = argos;
 
-        if (retry==maxtry) {
+        if (busy) {
             doghouse.publish(argos = new WatchdogTask(0));
             c1++;
         }
@@ -122,12 +139,10 @@ public class TimerService {
         }
     }
     
+    /** the buffer for draining the queue, only used while holding the lock */
+    private final Timer[] buf = new Timer[100];
+
     private long doTrigger(long currentTime) {
-        Timer[] buf = new Timer[100];
-        for (Timer t; (t = timerHeap.peek())!=null && t.getExecutionTime()==-1;) {
-            t.onHeap = false;
-            timerHeap.poll();
-        }
         int i = 0;
         timerQueue.fill(buf);
         do {
@@ -141,26 +156,12 @@ public class TimerService {
                     t = null;
                 else if (executionTime > 0 && executionTime<=currentTime)
                     t.es.onEvent(null,Timer.timedOut);
-                else if (!t.onHeap) {
-                    timerHeap.add(t);
-                    t.onHeap = true;
-                }
-                else 
-                    timerHeap.reschedule(t.index);
+                else
+                    timers.schedule(t);
                 buf[i] = null;
             }
         } while (i==100);
-        while (!timerHeap.isEmpty()) {
-            Timer t = timerHeap.peek();
-            long executionTime = t.getExecutionTime();
-            if (executionTime > currentTime)
-                return executionTime;
-            t.onHeap = false;
-            timerHeap.poll();
-            if (executionTime >= 0)
-                t.es.onEvent(null,Timer.timedOut);
-        }
-        return 0L;
+        return timers.expire(currentTime);
     }
     private class Watcher implements Runnable {
         WatchdogContext doghouse;
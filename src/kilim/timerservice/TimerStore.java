@@ -0,0 +1,25 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.timerservice;
+
+/**
+ * the pending timers of a TimerService, ie TimerPriorityHeap or TimerWheel.
+ * only accessed by the thread that holds the service's lock, though the timers may be changed
+ * (set or cancelled) concurrently, so the execution time is reread whenever a timer is examined
+ */
+public interface TimerStore {
+    boolean isEmpty();
+
+    /** store a timer that isn't stored, or move one that is after its execution time has changed */
+    void schedule(Timer t);
+
+    /**
+     * fire the timers whose execution time has passed, and drop the cancelled and completed timers
+     * that are encountered along the way
+     * @return a time at or before which the store should be expired again, or zero if it's empty
+     */
+    long expire(long currentTime);
+
+    /** drop the timers that are no longer pending, ie cancelled or completed */
+    void purge();
+}
@@ -0,0 +1,162 @@
+// copyright 2026 nqzero - offered under the terms of the MIT License
+
+package kilim.timerservice;
+
+/**
+ * a hierarchical timing wheel with millisecond ticks, ie a TimerStore with constant time schedule and cancel.
+ * each level has 64 slots, a slot at level L spans 64^L millis, and there are enough levels to cover
+ * every positive time. a timer is stored at the level of the highest bit in which its execution time differs
+ * from the wheel's clock, and in the slot given by the time's 6 bits at that level. when the clock enters
+ * a slot the timers are moved down a level, or fired once they're due. a bitmap per level marks
+ * the occupied slots, so idle stretches are skipped rather than ticked through.
+ * the slots are intrusive lists threaded through the timers (Timer.prev and next, with the slot in index),
+ * and cancelled timers are dropped lazily, when their slot is reached or they're rescheduled
+ */
+public class TimerWheel implements TimerStore {
+    static final int BITS = 6, SLOTS = 1 << BITS, MASK = SLOTS-1, LEVELS = (64+BITS-1)/BITS;
+    /** the index of the list of timers that were due when they were scheduled */
+    static final int DUE = LEVELS*SLOTS;
+
+    private final Timer [] heads = new Timer[DUE+1];
+    private final long [] occupied = new long[LEVELS];
+    private int size;
+    /** the time up to which the wheel has been expired */
+    private long now;
+
+    public TimerWheel() {
+        this(System.currentTimeMillis());
+    }
+
+    /** a wheel with the clock set to a time, which should precede the execution times of the timers */
+    public TimerWheel(long now) {
+        this.now = now;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size==0;
+    }
+
+    public void schedule(Timer t) {
+        if (t.onHeap)
+            unlink(t);
+        long executionTime = t.getExecutionTime();
+        if (executionTime < 0)
+            t.onHeap = false;
+        else {
+            place(t,executionTime);
+            t.onHeap = true;
+        }
+    }
+
+    /** link a timer into the slot for its time, or the due list if it isn't after the clock */
+    private void place(Timer t,long executionTime) {
+        if (executionTime <= now) {
+            link(t,DUE);
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(executionTime ^ now)) / BITS;
+        int slot = (int) (executionTime >>> (level*BITS)) & MASK;
+        occupied[level] |= 1L << slot;
+        link(t,level*SLOTS + slot);
+    }
+
+    private void link(Timer t,int index) {
+        Timer head = heads[index];
+        t.index = index;
+        t.prev = null;
+        t.next = head;
+        if (head != null)
+            head.prev = t;
+        heads[index] = t;
+        size++;
+    }
+
+    private void unlink(Timer t) {
+        int index = t.index;
+        if (t.prev != null)
+            t.prev.next = t.next;
+        else {
+            heads[index] = t.next;
+            if (t.next==null && index < DUE)
+                occupied[index/SLOTS] &= ~(1L << (index & MASK));
+        }
+        if (t.next != null)
+            t.next.prev = t.prev;
+        t.prev = t.next = null;
+        size--;
+    }
+
+    /** detach the list in a slot */
+    private Timer take(int index) {
+        Timer head = heads[index];
+        heads[index] = null;
+        if (index < DUE)
+            occupied[index/SLOTS] &= ~(1L << (index & MASK));
+        for (Timer t = head; t != null; t = t.next)
+            size--;
+        return head;
+    }
+
+    /** fire or move the timers in a detached list, relative to the clock */
+    private void cascade(Timer t) {
+        while (t != null) {
+            Timer next = t.next;
+            t.prev = t.next = null;
+            long executionTime = t.getExecutionTime();
+            if (executionTime < 0)
+                t.onHeap = false;
+            else if (executionTime <= now) {
+                t.onHeap = false;
+                t.es.onEvent(null,Timer.timedOut);
+            }
+            else
+                place(t,executionTime);
+            t = next;
+        }
+    }
+
+    public long expire(long currentTime) {
+        if (heads[DUE] != null)
+            cascade(take(DUE));
+        while (size > 0) {
+            // the lowest level with an occupied slot after the clock holds the next slot to enter
+            int level = 0, slot = 0;
+            for (; level < LEVELS; level++) {
+                int digit = (int) (now >>> (level*BITS)) & MASK;
+                long later = occupied[level] & (-2L << digit);
+                if (later != 0) {
+                    slot = Long.numberOfTrailingZeros(later);
+                    break;
+                }
+            }
+            if (level==LEVELS)
+                break;
+            int shift = (level+1)*BITS;
+            long base = shift >= 64 ? 0 : now >>> shift << shift;
+            long enter = base | (long) slot << (level*BITS);
+            if (enter > currentTime) {
+                now = Math.max(now,currentTime);
+                return enter;
+            }
+            now = enter;
+            cascade(take(level*SLOTS + slot));
+        }
+        now = Math.max(now,currentTime);
+        return 0L;
+    }
+
+    public void purge() {
+        for (int index=0; index <= DUE; index++)
+            for (Timer t = heads[index], next; t != null; t = next) {
+                next = t.next;
+                if (t.getExecutionTime() < 0) {
+                    unlink(t);
+                    t.onHeap = false;
+                }
+            }
+    }
+}
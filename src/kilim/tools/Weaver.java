@@ -237,6 +237,7 @@ public class Weaver {
         System.err.println("                    -x <regex> : exclude all classes matching regex");
         System.err.println("                    -f         : weave even if up to date");
         System.err.println("                    -c         : don't add targets to classpath");
+        System.err.println("                    -p         : preemptive, yield from long running loops");
         System.exit(1);
     }
 
@@ -256,6 +257,8 @@ public class Weaver {
                 force = true;
             } else if (arg.equals("-c")) {
                 proxy = false;
+            } else if (arg.equals("-p")) {
+                KilimContext.defaultPreempt = true;
             } else if (arg.equals("-h")) {
                 help();
             } else if (arg.equals("-x")) {
@@ -23,6 +23,7 @@ public class AllNotWoven extends TestSuite {
         ret.addTestSuite(TestClassInfo.class);
         ret.addTestSuite(TestInvalidPausables.class);
         ret.addTestSuite(TestDynamicWeaver.class);
+        ret.addTestSuite(TestPreempt.class);
         return ret;
     }
 }
@@ -23,6 +23,21 @@ public class AllWoven extends TestSuite {
     public static Test suite() {
         TestSuite ret = new AllWoven();
         ret.addTestSuite(TestPrefThread.class);
+        ret.addTestSuite(TestStealing.class);
+        ret.addTestSuite(TestIdle.class);
+        ret.addTestSuite(TestPriority.class);
+        ret.addTestSuite(TestRecycle.class);
+        ret.addTestSuite(TestScope.class);
+        ret.addTestSuite(TestLocal.class);
+        ret.addTestSuite(TestCancel.class);
+        ret.addTestSuite(TestMailboxMPSC.class);
+        ret.addTestSuite(TestChannel.class);
+        ret.addTestSuite(TestSelect.class);
+        ret.addTestSuite(TestFiberLock.class);
+        ret.addTestSuite(TestLatch.class);
+        ret.addTestSuite(TestFuture.class);
+        ret.addTestSuite(TestBlocking.class);
+        ret.addTestSuite(TestTimerWheel.class);
         ret.addTestSuite(TestYield.class);
         ret.addTestSuite(TestInterface.class);
         ret.addTestSuite(TestAbstractExtends.class);
@@ -34,6 +49,7 @@ public class AllWoven extends TestSuite {
         ret.addTestSuite(TestLock.class);
         ret.addTestSuite(TestGenerics.class);
         ret.addTestSuite(TestIO.class);
+        ret.addTestSuite(TestIOLoop.class);
         ret.addTestSuite(TestHTTP.class);
         return ret;
     }
@@ -0,0 +1,16 @@
+package kilim.test;
+
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.Scheduler;
+
+/** a test case that runs its tasks on a private scheduler, created for each test and shut down after it */
+public abstract class SchedulerTestCase extends TestCase {
+    static int timeout = 10000;
+    Scheduler sched;
+
+    Scheduler newScheduler() { return new AffineScheduler(2,0); }
+
+    public void setUp() { sched = newScheduler(); }
+    public void tearDown() { sched.shutdown(); }
+}
@@ -0,0 +1,156 @@
+package kilim.test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import kilim.AffineScheduler;
+import kilim.Blocking;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+public class TestBlocking extends SchedulerTestCase {
+    Blocking blocking;
+
+    Scheduler newScheduler() { return new AffineScheduler(1,0); }
+
+    public void setUp() {
+        super.setUp();
+        blocking = new Blocking(2,1,1000);
+    }
+    public void tearDown() {
+        super.tearDown();
+        blocking.shutdown();
+    }
+
+    /** the call runs on a pool thread and the task resumes on its own scheduler */
+    public void testRun() throws Exception {
+        Task<String> task = new Task<String>() {
+            public void execute() throws Pausable, Exception {
+                Thread worker = Thread.currentThread();
+                String name = blocking.call(new Callable<String>() {
+                    public String call() { return Thread.currentThread().getName(); }
+                });
+                assertSame(worker,Thread.currentThread());
+                assertSame(sched,getScheduler());
+                exit(name);
+            }
+        }.setScheduler(sched).start();
+        assertTrue(((String) task.joinb().result).startsWith("kilim-blocking"));
+        assertEquals(1,blocking.getOffloaded());
+        assertEquals(0,blocking.getPending());
+    }
+
+    /** an exception thrown by the call is rethrown on the original scheduler */
+    public void testException() throws Exception {
+        final IOException cause = new IOException();
+        Task<Object> task = new Task<Object>() {
+            public void execute() throws Pausable, Exception {
+                try {
+                    blocking.call(new Callable<String>() {
+                        public String call() throws Exception { throw cause; }
+                    });
+                }
+                catch (IOException ex) {
+                    assertSame(sched,getScheduler());
+                    exit(ex);
+                }
+            }
+        }.setScheduler(sched).start();
+        assertSame(cause,task.joinb().result);
+    }
+
+    /** an Error thrown by the call is rethrown on the original scheduler and releases its admission */
+    public void testError() throws Exception {
+        for (int ii=0; ii < 5; ii++) {
+            Task<Object> task = new Task<Object>() {
+                public void execute() throws Pausable, Exception {
+                    try {
+                        blocking.call(new Callable<String>() {
+                            public String call() { throw new AssertionError("expected"); }
+                        });
+                    }
+                    catch (AssertionError ex) {
+                        assertSame(sched,getScheduler());
+                        exit(ex);
+                    }
+                }
+            }.setScheduler(sched).start();
+            assertTrue(task.joinb().result instanceof AssertionError);
+        }
+        assertEquals(0,blocking.getPending());
+        assertEquals(0,blocking.getRejected());
+    }
+
+    /** a blocked call doesn't stall the other tasks on the scheduler */
+    public void testNotBlocked() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Mailbox<Integer> box = new Mailbox();
+        Task task = new Task() {
+            public void execute() throws Pausable, Exception {
+                blocking.call(new Callable<Boolean>() {
+                    public Boolean call() throws Exception { return latch.await(timeout,TimeUnit.MILLISECONDS); }
+                });
+            }
+        }.setScheduler(sched).start();
+        new Task() {
+            public void execute() throws Pausable {
+                box.put(1);
+            }
+        }.setScheduler(sched).start();
+        assertEquals(1,(int) box.getb(timeout));
+        latch.countDown();
+        assertEquals("OK",task.joinb().result);
+    }
+
+    /** calls beyond the threads and the queue are rejected without running, and queue time is recorded */
+    public void testReject() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Mailbox<Object> results = new Mailbox();
+        for (int ii=0; ii < 4; ii++)
+            new Task() {
+                public void execute() throws Pausable, Exception {
+                    try {
+                        results.put(blocking.call(new Callable<Boolean>() {
+                            public Boolean call() throws Exception { return latch.await(timeout,TimeUnit.MILLISECONDS); }
+                        }));
+                    }
+                    catch (RejectedExecutionException ex) { results.put(ex); }
+                }
+            }.setScheduler(sched).start();
+        assertTrue(results.getb(timeout) instanceof RejectedExecutionException);
+        assertEquals(1,blocking.getRejected());
+        Thread.sleep(20);
+        latch.countDown();
+        for (int ii=0; ii < 3; ii++)
+            assertEquals(Boolean.TRUE,results.getb(timeout));
+        assertEquals(3,blocking.getOffloaded());
+        assertTrue(blocking.getMaxQueueNanos() >= 20000000L);
+        assertTrue(blocking.getPoolSize() <= 2);
+    }
+
+    /** a task cancelled during the call is unwound once it's back on its scheduler */
+    public void testCancel() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1), latch = new CountDownLatch(1);
+        Task task = new Task() {
+            public void execute() throws Pausable, Exception {
+                blocking.call(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        started.countDown();
+                        return latch.await(timeout,TimeUnit.MILLISECONDS);
+                    }
+                });
+            }
+        }.setScheduler(sched).start();
+        assertTrue(started.await(timeout,TimeUnit.MILLISECONDS));
+        task.cancel();
+        latch.countDown();
+        assertTrue(task.joinb().result instanceof CancellationException);
+        assertSame(sched,task.getScheduler());
+        assertEquals(0,blocking.getPending());
+    }
+}
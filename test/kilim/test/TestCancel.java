@@ -0,0 +1,128 @@
+package kilim.test;
+
+import java.util.concurrent.CancellationException;
+import kilim.ExitMsg;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Task;
+import kilim.TaskScope;
+
+public class TestCancel extends SchedulerTestCase {
+    static void assertCancelled(ExitMsg msg) {
+        assertTrue(String.valueOf(msg.result),msg.result instanceof CancellationException);
+        assertTrue(msg.task.isCancelled());
+    }
+
+    /** a task paused in Mailbox.get is unwound, and the mailbox no longer holds the task */
+    public void testMailbox() throws Exception {
+        final Mailbox<Integer> ready = new Mailbox(), box = new Mailbox();
+        final Mailbox<Integer> after = new Mailbox();
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                ready.put(1);
+                box.get();
+                after.put(2);
+            }
+        }.setScheduler(sched).start();
+        assertNotNull(ready.getb(timeout));
+        task.cancel();
+        assertCancelled(task.joinb());
+        assertNull(after.getb(100));
+        // the listener was removed, so the box is still usable by another consumer
+        final Mailbox<Integer> got = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                got.put(box.get());
+            }
+        }.setScheduler(sched).start();
+        box.putb(3);
+        assertEquals(3,(int) got.getb(timeout));
+    }
+
+    public void testSleep() throws Exception {
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                Task.sleep(1000000);
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        long start = System.currentTimeMillis();
+        task.cancel();
+        assertCancelled(task.joinb());
+        assertTrue(System.currentTimeMillis() - start < timeout);
+    }
+
+    /** a task that swallows the cancellation is cancelled again at its next pause */
+    public void testRepeat() throws Exception {
+        final Mailbox<Integer> ready = new Mailbox();
+        Task<Integer> task = new Task<Integer>() {
+            public void execute() throws Pausable {
+                int caught = 0;
+                for (int ii=0; ii < 2; ii++)
+                    try {
+                        ready.put(ii);
+                        Task.sleep(1000000);
+                    }
+                    catch (CancellationException ex) { caught++; }
+                exit(caught);
+            }
+        }.setScheduler(sched).start();
+        assertNotNull(ready.getb(timeout));
+        task.cancel();
+        assertEquals(2,(int) task.joinb().result);
+        task.cancel();
+        assertTrue(task.isDone());
+    }
+
+    public void testBeforeStart() throws Exception {
+        final Mailbox<Integer> ran = new Mailbox();
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                ran.put(1);
+            }
+        }.setScheduler(sched);
+        task.cancel();
+        task.start();
+        assertCancelled(task.joinb());
+        assertNull(ran.getnb());
+    }
+
+    public void testDeadline() throws Exception {
+        long start = System.currentTimeMillis();
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                Task.sleep(1000000);
+            }
+        }.withDeadline(start + 50).setScheduler(sched).start();
+        assertCancelled(task.joinb());
+        long delta = System.currentTimeMillis() - start;
+        assertTrue(delta >= 40 && delta < timeout);
+    }
+
+    /** children inherit the earlier of their own deadline and the parent's */
+    public void testInherit() throws Exception {
+        final long deadline = System.currentTimeMillis() + 1000000;
+        final Mailbox<Long> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                Task<Long> child = Task.spawn(new Pausable.Spawn<Long>() {
+                    public Long execute() throws Pausable {
+                        return Task.getCurrentTask().getDeadline();
+                    }
+                });
+                result.put(child.join().result);
+                Task<Long> later = new Task<Long>() {
+                    public void execute() throws Pausable {
+                        exit(getDeadline());
+                    }
+                }.withDeadline(deadline + 1000);
+                TaskScope<Long> scope = new TaskScope(new Long[1]);
+                scope.fork(later);
+                scope.join();
+                result.put(scope.getResults()[0]);
+            }
+        }.withDeadline(deadline).setScheduler(sched).start();
+        assertEquals(deadline,(long) result.getb(timeout));
+        assertEquals(deadline,(long) result.getb(timeout));
+    }
+}
@@ -0,0 +1,107 @@
+package kilim.test;
+
+import kilim.Cell;
+import kilim.Channel;
+import kilim.Channels;
+import kilim.Mailbox;
+import kilim.MailboxMPSC;
+import kilim.MailboxSPSC;
+import kilim.Pausable;
+import kilim.Task;
+
+public class TestChannel extends SchedulerTestCase {
+    public void testFactory() {
+        assertTrue(Channels.create(Channels.Producers.MULTIPLE,1) instanceof Cell);
+        assertTrue(Channels.create(Channels.Producers.SINGLE,Channels.UNBOUNDED) instanceof Mailbox);
+        assertTrue(Channels.create(Channels.Producers.SINGLE,64) instanceof MailboxSPSC);
+        assertTrue(Channels.create(Channels.Producers.MULTIPLE,64) instanceof MailboxMPSC);
+        try {
+            Channels.create(Channels.Producers.SINGLE,0);
+            fail();
+        }
+        catch (IllegalArgumentException ex) {}
+    }
+
+    static Channel<Integer> [] all() {
+        return new Channel[] { new Mailbox(4,4), new MailboxSPSC(4), new MailboxMPSC(4), new Cell() };
+    }
+
+    /** the same pausable call sites run against each implementation, with the producer pausing on a full channel */
+    public void testPingPong() throws Exception {
+        final int num = 1000;
+        for (final Channel<Integer> chan : all()) {
+            final Channel<Integer> result = new Mailbox();
+            new Task() {
+                public void execute() throws Pausable {
+                    int sum = 0;
+                    for (int ii=0; ii < num; ii++)
+                        sum += chan.get();
+                    result.put(sum);
+                }
+            }.setScheduler(sched).start();
+            new Task() {
+                public void execute() throws Pausable {
+                    for (int ii=0; ii < num; ii++)
+                        chan.put(ii);
+                }
+            }.setScheduler(sched).start();
+            assertEquals(chan.toString(),num*(num-1)/2,(int) result.getb(timeout));
+            assertFalse(chan.hasMessage());
+        }
+    }
+
+    public void testBlocking() throws Exception {
+        for (final Channel<Integer> chan : all()) {
+            new Thread() {
+                public void run() {
+                    for (int ii=0; ii < 100; ii++)
+                        chan.putb(ii);
+                }
+            }.start();
+            for (int ii=0; ii < 100; ii++)
+                assertEquals(ii,(int) chan.getb(timeout));
+            assertNull(chan.getb(10));
+        }
+    }
+
+    /** contending producers block till there's space, ie no message is dropped when another producer wins the slot */
+    public void testContendedPutb() throws Exception {
+        final int numProducers = 4, num = 2000;
+        final Channel<Integer> chan = Channels.create(Channels.Producers.MULTIPLE,1);
+        for (int jj=0; jj < numProducers; jj++)
+            new Thread() {
+                public void run() {
+                    for (int ii=0; ii < num; ii++)
+                        chan.putb(ii);
+                }
+            }.start();
+        long sum = 0;
+        for (int ii=0; ii < numProducers*num; ii++) {
+            Integer val = chan.getb(timeout);
+            assertNotNull("lost messages: " + (numProducers*num - ii),val);
+            sum += val;
+        }
+        assertEquals(1L*numProducers*num*(num-1)/2,sum);
+        assertNull(chan.getb(10));
+    }
+
+    /** select across a mix of implementations */
+    public void testSelect() throws Exception {
+        final Channel<Integer> [] chans = all();
+        final Mailbox<Integer> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                for (int ii=0; ii < 2*chans.length; ii++) {
+                    int index = Mailbox.select(chans);
+                    result.put(index*1000 + chans[index].getnb());
+                }
+            }
+        }.setScheduler(sched).start();
+        for (int ii=0; ii < 2; ii++)
+            for (int jj=chans.length-1; jj >= 0; jj--) {
+                Thread.sleep(5);
+                assertTrue(chans[jj].putnb(ii));
+                assertEquals(jj*1000 + ii,(int) result.getb(timeout));
+            }
+    }
+}
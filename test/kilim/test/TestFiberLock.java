@@ -0,0 +1,201 @@
+package kilim.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import kilim.AffineScheduler;
+import kilim.FiberLock;
+import kilim.FiberReadWriteLock;
+import kilim.FiberSemaphore;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.TaskScope;
+
+public class TestFiberLock extends SchedulerTestCase {
+    int count;
+
+    /** tasks that yield while holding the lock still exclude each other */
+    public void testExclusion() throws Exception {
+        final FiberLock lock = new FiberLock();
+        final int num = 50, iters = 100;
+        TaskScope scope = new TaskScope().setScheduler(sched);
+        for (int ii=0; ii < num; ii++)
+            scope.fork(new Task() {
+                public void execute() throws Pausable {
+                    for (int jj=0; jj < iters; jj++) {
+                        lock.lock();
+                        try {
+                            int val = count;
+                            Task.yield();
+                            count = val + 1;
+                        }
+                        finally { lock.unlock(); }
+                    }
+                }
+            });
+        assertNull(scope.joinb());
+        assertEquals(num*iters,count);
+        assertFalse(lock.isLocked());
+    }
+
+    /** a contending task pauses, so another task on the only thread keeps running */
+    public void testNoPin() throws Exception {
+        Scheduler single = new AffineScheduler(1,0);
+        final FiberLock lock = new FiberLock();
+        final Mailbox<String> events = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                lock.lock();
+                Task.sleep(100);
+                events.put("release");
+                lock.unlock();
+            }
+        }.setScheduler(single).start();
+        Thread.sleep(20);
+        new Task() {
+            public void execute() throws Pausable {
+                lock.lock();
+                events.put("acquired");
+                lock.unlock();
+            }
+        }.setScheduler(single).start();
+        new Task() {
+            public void execute() throws Pausable {
+                events.put("bystander");
+            }
+        }.setScheduler(single).start();
+        assertEquals("bystander",events.getb(timeout));
+        assertEquals("release",events.getb(timeout));
+        assertEquals("acquired",events.getb(timeout));
+        single.shutdown();
+    }
+
+    public void testReentrant() throws Exception {
+        final FiberLock lock = new FiberLock();
+        final Mailbox<String> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                lock.lock();
+                lock.lock();
+                assertTrue(lock.tryLock());
+                lock.unlock();
+                lock.unlock();
+                assertSame(this,lock.getOwner());
+                lock.unlock();
+                try {
+                    lock.unlock();
+                    result.put("unlocked twice");
+                }
+                catch (IllegalMonitorStateException ex) {
+                    result.put("ok");
+                }
+            }
+        }.setScheduler(sched).start();
+        assertEquals("ok",result.getb(timeout));
+        assertFalse(lock.isLocked());
+    }
+
+    /** a cancelled waiter leaves the queue, and the lock passes to the next one */
+    public void testCancel() throws Exception {
+        final FiberLock lock = new FiberLock();
+        final Mailbox<Integer> go = new Mailbox(), acquired = new Mailbox();
+        Task holder = new Task() {
+            public void execute() throws Pausable {
+                lock.lock();
+                go.get();
+                lock.unlock();
+            }
+        }.setScheduler(sched).start();
+        Task [] waiters = new Task[2];
+        for (int ii=0; ii < 2; ii++) {
+            final int index = ii;
+            Thread.sleep(20);
+            waiters[ii] = new Task() {
+                public void execute() throws Pausable {
+                    lock.lock();
+                    acquired.put(index);
+                    lock.unlock();
+                }
+            }.setScheduler(sched).start();
+        }
+        Thread.sleep(20);
+        waiters[0].cancel();
+        waiters[0].joinb();
+        go.putb(1);
+        assertEquals(1,(int) acquired.getb(timeout));
+        holder.joinb();
+        waiters[1].joinb();
+        assertFalse(lock.isLocked());
+    }
+
+    public void testSemaphore() throws Exception {
+        final FiberSemaphore sem = new FiberSemaphore(3);
+        final AtomicInteger active = new AtomicInteger(), max = new AtomicInteger();
+        TaskScope scope = new TaskScope().setScheduler(sched);
+        for (int ii=0; ii < 20; ii++)
+            scope.fork(new Task() {
+                public void execute() throws Pausable {
+                    sem.acquire();
+                    int now = active.incrementAndGet();
+                    while (true) {
+                        int prev = max.get();
+                        if (now <= prev || max.compareAndSet(prev,now)) break;
+                    }
+                    Task.sleep(5);
+                    active.decrementAndGet();
+                    sem.release();
+                }
+            });
+        assertNull(scope.joinb());
+        assertEquals(3,max.get());
+        assertEquals(3,sem.availablePermits());
+        assertTrue(sem.tryAcquire());
+        assertEquals(2,sem.availablePermits());
+    }
+
+    /** readers share the lock, and a waiting writer holds back later readers */
+    public void testReadWrite() throws Exception {
+        final FiberReadWriteLock lock = new FiberReadWriteLock();
+        final Mailbox<String> events = new Mailbox();
+        final Mailbox<Integer> go = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                lock.lockRead();
+                lock.lockRead();
+                events.put("readers " + lock.getReadLockCount());
+                go.get();
+                lock.unlockRead();
+                lock.unlockRead();
+            }
+        }.setScheduler(sched).start();
+        assertEquals("readers 2",events.getb(timeout));
+        new Task() {
+            public void execute() throws Pausable {
+                lock.lockWrite();
+                events.put("writer");
+                lock.lockRead();
+                lock.unlockWrite();
+                events.put("downgraded " + lock.isWriteLocked());
+                lock.unlockRead();
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        assertFalse(lock.tryLockRead());
+        new Task() {
+            public void execute() throws Pausable {
+                lock.lockRead();
+                events.put("late reader");
+                lock.unlockRead();
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        assertNull(events.getnb());
+        go.putb(1);
+        assertEquals("writer",events.getb(timeout));
+        assertEquals("downgraded false",events.getb(timeout));
+        assertEquals("late reader",events.getb(timeout));
+        Thread.sleep(20);
+        assertEquals(0,lock.getReadLockCount());
+        assertFalse(lock.isWriteLocked());
+    }
+}
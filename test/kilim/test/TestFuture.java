@@ -0,0 +1,158 @@
+package kilim.test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Task;
+
+public class TestFuture extends SchedulerTestCase {
+    /** complete the future from a plain thread after a delay */
+    static <T> void completeLater(final CompletableFuture<T> future,final T value,final Throwable ex) {
+        new Thread() {
+            public void run() {
+                try { Thread.sleep(20); }
+                catch (InterruptedException e) {}
+                if (ex==null) future.complete(value);
+                else future.completeExceptionally(ex);
+            }
+        }.start();
+    }
+
+    /** the task pauses till another thread completes the future */
+    public void testAwait() throws Exception {
+        final CompletableFuture<String> future = new CompletableFuture();
+        Task<String> task = new Task<String>() {
+            public void execute() throws Pausable {
+                exit(Task.await(future));
+            }
+        }.setScheduler(sched).start();
+        completeLater(future,"hello",null);
+        assertEquals("hello",task.joinb().result);
+    }
+
+    /** a completed stage, and a dependent stage */
+    public void testAwaitDone() throws Exception {
+        final CompletableFuture<Integer> future = CompletableFuture.completedFuture(3);
+        final CompletableFuture<Integer> source = new CompletableFuture();
+        Task<Integer> task = new Task<Integer>() {
+            public void execute() throws Pausable {
+                int sum = Task.await(future);
+                sum += Task.await(source.thenApply(new Function<Integer,Integer>() {
+                    public Integer apply(Integer val) { return val*10; }
+                }));
+                exit(sum);
+            }
+        }.setScheduler(sched).start();
+        completeLater(source,4,null);
+        assertEquals(43,(int) task.joinb().result);
+    }
+
+    /** an exceptional completion is thrown in the task, wrapped as by join */
+    public void testAwaitFailure() throws Exception {
+        final CompletableFuture<String> future = new CompletableFuture();
+        final IllegalStateException cause = new IllegalStateException();
+        Task<Object> task = new Task<Object>() {
+            public void execute() throws Pausable {
+                try {
+                    Task.await(future);
+                    exit("no exception");
+                }
+                catch (CompletionException ex) { exit(ex.getCause()); }
+            }
+        }.setScheduler(sched).start();
+        completeLater(future,null,cause);
+        assertSame(cause,task.joinb().result);
+    }
+
+    /** a cancelled task stops waiting, and the later completion doesn't resume it */
+    public void testAwaitCancel() throws Exception {
+        final CompletableFuture<String> future = new CompletableFuture();
+        final Mailbox<Integer> ready = new Mailbox();
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                ready.put(1);
+                Task.await(future);
+            }
+        }.setScheduler(sched).start();
+        assertNotNull(ready.getb(timeout));
+        Thread.sleep(20);
+        task.cancel();
+        assertTrue(task.joinb().result instanceof CancellationException);
+        future.complete("late");
+    }
+
+    /** the future of a task completes with the exit result, and after the task is done */
+    public void testToFuture() throws Exception {
+        Task<Integer> task = new Task<Integer>() {
+            public void execute() throws Pausable {
+                Task.sleep(20);
+                exit(7);
+            }
+        }.setScheduler(sched);
+        CompletableFuture<Integer> future = task.toFuture();
+        task.start();
+        assertEquals(7,(int) future.get(timeout,TimeUnit.MILLISECONDS));
+        assertSame(future,task.toFuture());
+        Task<Integer> done = Task.spawn(new Pausable.Spawn<Integer>() {
+            public Integer execute() throws Pausable { return 8; }
+        });
+        done.joinb();
+        assertEquals(8,(int) done.toFuture().get(timeout,TimeUnit.MILLISECONDS));
+    }
+
+    /** a failure completes the future exceptionally, including after the task is done */
+    public void testToFutureFailure() throws Exception {
+        final IllegalStateException cause = new IllegalStateException("expected");
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                Task.sleep(20);
+                throw cause;
+            }
+        }.setScheduler(sched);
+        CompletableFuture future = task.toFuture();
+        task.start();
+        for (int ii=0; ii < 2; ii++) {
+            try {
+                future.get(timeout,TimeUnit.MILLISECONDS);
+                fail();
+            }
+            catch (ExecutionException ex) { assertSame(cause,ex.getCause()); }
+            future = task.toFuture();
+        }
+        assertTrue(task.toFuture().isCompletedExceptionally());
+    }
+
+    /** cancelling the future cancels the task */
+    public void testCancelFuture() throws Exception {
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                Task.sleep(1000000);
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        assertTrue(task.toFuture().cancel(false));
+        assertTrue(task.joinb().result instanceof CancellationException);
+        assertTrue(task.isCancelled());
+    }
+
+    /** a task awaits the future of another task */
+    public void testChain() throws Exception {
+        final Task<Integer> first = Task.spawn(new Pausable.Spawn<Integer>() {
+            public Integer execute() throws Pausable {
+                Task.sleep(20);
+                return 5;
+            }
+        });
+        Task<Integer> second = new Task<Integer>() {
+            public void execute() throws Pausable {
+                exit(Task.await(first.toFuture())+1);
+            }
+        }.setScheduler(sched).start();
+        assertEquals(6,(int) second.joinb().result);
+    }
+}
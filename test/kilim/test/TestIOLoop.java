@@ -0,0 +1,20 @@
+package kilim.test;
+
+import kilim.nio.NioLoopScheduler;
+
+/** run the TestIO cases with the echo sessions spread across the loops of a NioLoopScheduler */
+public class TestIOLoop extends TestIO {
+    NioLoopScheduler loops;
+
+    @Override
+    protected void setUp() throws Exception {
+        loops = new NioLoopScheduler(3);
+        port = loops.listen(0,EchoServer.class);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        loops.shutdown();
+        Thread.sleep(500); // Allow the socket to be closed
+    }
+}
@@ -0,0 +1,66 @@
+package kilim.test;
+
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.ForkJoinScheduler;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.StealingScheduler;
+import kilim.Task;
+
+public class TestIdle extends TestCase {
+    static int timeout = 10000;
+
+    static Scheduler [] make() {
+        return new Scheduler[] {
+            new AffineScheduler(2,0),
+            new ForkJoinScheduler(2),
+            new StealingScheduler(2)
+        };
+    }
+
+    /** awaitIdle must wait for sleeping tasks, ie pending timers, and return as the last task completes */
+    public void testSleep() throws Exception {
+        for (Scheduler s : make()) {
+            final int [] finished = new int[1];
+            for (int ii = 0; ii < 10; ii++) {
+                Task t = new Task() {
+                    public void execute() throws Pausable {
+                        Task.sleep(200);
+                        synchronized (finished) { finished[0]++; }
+                    }
+                };
+                t.setScheduler(s);
+                t.start();
+            }
+            assertFalse(s.getClass().getSimpleName(),s.awaitIdle(20));
+            assertTrue(s.awaitIdle(timeout));
+            synchronized (finished) { assertEquals(10,finished[0]); }
+            long start = System.currentTimeMillis();
+            assertTrue(s.awaitIdle(timeout));
+            assertTrue(System.currentTimeMillis() - start < 100);
+            s.shutdown();
+        }
+    }
+
+    /** a cancelled timer, ie a get that was satisfied before its timeout, must not hold up awaitIdle */
+    public void testCancelled() throws Exception {
+        for (Scheduler s : make()) {
+            final Mailbox<Integer> mb = new Mailbox<Integer>();
+            Task t = new Task() {
+                public void execute() throws Pausable {
+                    mb.get(1000000);
+                }
+            };
+            t.setScheduler(s);
+            t.start();
+            assertFalse(s.awaitIdle(20));
+            mb.putnb(0);
+            long start = System.currentTimeMillis();
+            assertTrue(s.awaitIdle(timeout));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            s.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package kilim.test;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.atomic.AtomicInteger;
+import kilim.FiberBarrier;
+import kilim.FiberLatch;
+import kilim.FiberPhaser;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Task;
+import kilim.TaskScope;
+
+public class TestLatch extends SchedulerTestCase {
+    /** scatter/gather - many tasks wait on a start latch, and a finished latch collects them */
+    public void testLatch() throws Exception {
+        final int num = 1000;
+        final FiberLatch start = new FiberLatch(1), finished = new FiberLatch(num);
+        final AtomicInteger started = new AtomicInteger();
+        for (int ii=0; ii < num; ii++)
+            new Task() {
+                public void execute() throws Pausable {
+                    start.await();
+                    started.incrementAndGet();
+                    finished.countDown();
+                }
+            }.setScheduler(sched).start();
+        Thread.sleep(20);
+        assertEquals(0,started.get());
+        start.countDown();
+        assertTrue(finished.awaitb(timeout));
+        assertEquals(num,started.get());
+        assertEquals(0,finished.getCount());
+        finished.countDown();
+        assertEquals(0,finished.getCount());
+    }
+
+    public void testLatchTimeout() throws Exception {
+        final FiberLatch latch = new FiberLatch(1);
+        final Mailbox<Boolean> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                result.put(latch.await(30));
+                result.put(latch.await(timeout));
+            }
+        }.setScheduler(sched).start();
+        assertFalse(result.getb(timeout));
+        latch.countDown();
+        assertTrue(result.getb(timeout));
+        assertTrue(new FiberLatch(0).awaitb(1));
+    }
+
+    /** the barrier trips once per generation, with the action run once before the waiters resume */
+    public void testBarrier() throws Exception {
+        final int num = 20, rounds = 10;
+        final AtomicInteger trips = new AtomicInteger(), checks = new AtomicInteger();
+        final FiberBarrier barrier = new FiberBarrier(num,new Runnable() {
+            public void run() { trips.incrementAndGet(); }
+        });
+        TaskScope scope = new TaskScope().setScheduler(sched);
+        for (int ii=0; ii < num; ii++)
+            scope.fork(new Task() {
+                public void execute() throws Pausable, Exception {
+                    for (int round=0; round < rounds; round++) {
+                        int index = barrier.await();
+                        assertTrue(index >= 0 && index < num);
+                        if (trips.get()==round+1) checks.incrementAndGet();
+                        Task.yield();
+                    }
+                }
+            });
+        assertNull(scope.joinb());
+        assertEquals(rounds,trips.get());
+        assertEquals(num*rounds,checks.get());
+    }
+
+    /** a cancelled waiter breaks the generation */
+    public void testBarrierCancel() throws Exception {
+        final FiberBarrier barrier = new FiberBarrier(3);
+        final Mailbox<String> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                try { barrier.await(); result.put("tripped"); }
+                catch (BrokenBarrierException ex) { result.put("broken"); }
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        Task victim = new Task() {
+            public void execute() throws Pausable, Exception {
+                barrier.await();
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        victim.cancel();
+        assertEquals("broken",result.getb(timeout));
+        assertEquals(0,barrier.getNumberWaiting());
+    }
+
+    /** parties come and go, and waiters resume when the last registered party arrives */
+    public void testPhaser() throws Exception {
+        final FiberPhaser phaser = new FiberPhaser(1);
+        final int num = 10;
+        final Mailbox<Integer> phases = new Mailbox();
+        for (int ii=0; ii < num; ii++) {
+            phaser.register();
+            new Task() {
+                public void execute() throws Pausable {
+                    phases.put(phaser.arriveAndAwaitAdvance());
+                    phaser.arriveAndDeregister();
+                }
+            }.setScheduler(sched).start();
+        }
+        Thread.sleep(20);
+        assertNull(phases.getnb());
+        assertEquals(0,phaser.arrive());
+        for (int ii=0; ii < num; ii++)
+            assertEquals(1,(int) phases.getb(timeout));
+        for (int ii=0; ii < 100 && phaser.getRegisteredParties() > 1; ii++)
+            Thread.sleep(10);
+        assertEquals(1,phaser.getRegisteredParties());
+        assertEquals(1,phaser.getPhase());
+        assertEquals(1,phaser.arrive());
+        assertEquals(2,phaser.getPhase());
+        try {
+            new FiberPhaser().arrive();
+            fail();
+        }
+        catch (IllegalStateException ex) {}
+    }
+}
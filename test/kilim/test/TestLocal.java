@@ -0,0 +1,103 @@
+package kilim.test;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Task;
+import kilim.TaskLocal;
+import kilim.TaskScope;
+
+public class TestLocal extends SchedulerTestCase {
+    static TaskLocal<String> trace = new TaskLocal();
+    static TaskLocal<Integer> count = new TaskLocal<Integer>() {
+        protected Integer initialValue() { return 0; }
+    };
+
+    void run(final Pausable.Fork body) throws Exception {
+        final Mailbox<Object> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable, Exception {
+                body.execute();
+                result.put("ok");
+            }
+        }.setScheduler(sched).start();
+        assertEquals("ok",result.getb(timeout));
+    }
+
+    /** values are per task, survive pauses and default to the initial value */
+    public void testValues() throws Exception {
+        run(new Pausable.Fork() {
+            public void execute() throws Pausable {
+                assertNull(trace.get());
+                assertEquals(0,(int) count.get());
+                for (int ii=0; ii < 10; ii++) {
+                    count.set(count.get()+1);
+                    Task.yield();
+                }
+                assertEquals(10,(int) count.get());
+                count.set(null);
+                assertNull(count.get());
+                count.remove();
+                assertEquals(0,(int) count.get());
+            }
+        });
+    }
+
+    /** spawned and scoped children inherit a copy of the values */
+    public void testInherit() throws Exception {
+        run(new Pausable.Fork() {
+            public void execute() throws Pausable {
+                trace.set("parent");
+                Task.Spawn<String> child = Task.spawn(new Pausable.Spawn<String>() {
+                    public String execute() throws Pausable {
+                        String val = trace.get();
+                        trace.set("child");
+                        return val;
+                    }
+                });
+                assertEquals("parent",child.join().result);
+                assertEquals("parent",trace.get());
+                TaskScope<String> scope = new TaskScope(new String[1]);
+                scope.fork(new Pausable.Spawn<String>() {
+                    public String execute() throws Pausable {
+                        return trace.get();
+                    }
+                });
+                assertNull(scope.join());
+                assertEquals("parent",scope.getResults()[0]);
+            }
+        });
+    }
+
+    /** plain code that runs on a worker after a task, eg a future callback, doesn't inherit from the task */
+    public void testCallback() throws Exception {
+        final Mailbox<Task<String>> children = new Mailbox();
+        Task parent = new Task() {
+            public void execute() throws Pausable {
+                trace.set("parent");
+            }
+        };
+        parent.withDeadline(System.currentTimeMillis() + timeout).setScheduler(sched);
+        parent.toFuture().thenRun(new Runnable() {
+            public void run() {
+                children.putnb(Task.spawn(new Pausable.Spawn<String>() {
+                    public String execute() throws Pausable {
+                        return trace.get();
+                    }
+                }));
+            }
+        });
+        parent.start();
+        Task<String> child = children.getb(timeout);
+        assertNull(child.joinb().result);
+        assertEquals(0,child.getDeadline());
+    }
+
+    /** a task that isn't started by a task doesn't inherit */
+    public void testExplicit() throws Exception {
+        Task task = new Task() {};
+        assertNull(trace.get(task));
+        trace.set(task,"outside");
+        assertEquals("outside",trace.get(task));
+        assertEquals(0,(int) count.get(task));
+    }
+}
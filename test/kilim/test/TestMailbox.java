@@ -6,6 +6,8 @@
 
 package kilim.test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -94,6 +96,29 @@ public class TestMailbox extends TestCase {
             assertTrue(result.getb(block) == secret+ii);
     }
 
+    /** a sleep outlasts spurious resumes, and leaves no timeout behind for a later get */
+    public void testSleep() throws Exception {
+        final int delay = 50, block = 1000;
+        final Mailbox<Integer> mb = new Mailbox(), result = new Mailbox();
+        Task task = new Task() {
+            public void execute() throws Pausable,Exception {
+                long start = System.nanoTime();
+                Task.sleep(delay);
+                result.put((int) ((System.nanoTime() - start)/1000000));
+                result.put(mb.get());
+            }
+        }.start();
+        for (int ii = 0; ii < 10; ii++) {
+            Thread.sleep(delay/10);
+            task.resume();
+        }
+        assertTrue(result.getb(block) >= delay-1);
+        Thread.sleep(delay);
+        assertNull(result.getnb());
+        mb.putnb(7);
+        assertEquals(7,(int) result.getb(block));
+    }
+
     public void testSimpleTask_Pausing() {
 
         Mailbox<Msg> mainmb = new Mailbox<Msg>();
@@ -227,6 +252,92 @@ public class TestMailbox extends TestCase {
     public void testMailBoxWithMaxSize() {
         Consumer.testing();
     }
+
+    // A producer puts batches into a small mailbox, wrapping and filling the ring, and a
+    // consumer drains them in batches of a different size
+    public void testBatch() {
+        final int num = 10000;
+        final Mailbox<Integer> mb = new Mailbox<Integer>(3, 7);
+        final Mailbox<Integer> result = new Mailbox<Integer>();
+        new Task() {
+            public void execute() throws Pausable {
+                int next = 0;
+                Integer [] buf = new Integer[5];
+                while (next < num) {
+                    int n = mb.drainTo(buf, buf.length);
+                    assertTrue(n >= 1 && n <= buf.length);
+                    for (int i = 0; i < n; i++)
+                        assertEquals(next++, (int) buf[i]);
+                }
+                result.put(next);
+            }
+        }.start();
+        new Task() {
+            public void execute() throws Pausable {
+                ArrayList<Integer> batch = new ArrayList<Integer>();
+                for (int i = 0; i < num; i++) {
+                    batch.add(i);
+                    if (batch.size() == 11 || i == num-1) {
+                        mb.putAll(batch);
+                        batch.clear();
+                    }
+                }
+            }
+        }.start();
+        assertEquals(num, (int) result.getb(10000));
+        assertNull(mb.getnb());
+    }
+
+    public void testBatchNb() {
+        Mailbox<Integer> mb = new Mailbox<Integer>(2, 5);
+        assertEquals(5, mb.putAllnb(new Integer[] {0, 1, 2, 3, 4, 5, 6}));
+        assertFalse(mb.putnb(7));
+        ArrayList<Integer> got = new ArrayList<Integer>();
+        assertEquals(3, mb.drainTonb(got, 3));
+        assertEquals(2, mb.drainTonb(got, 10));
+        assertEquals(0, mb.drainTonb(got, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), got);
+        try {
+            mb.putAllnb(new Integer[] {8, null});
+            fail();
+        } catch (NullPointerException ex) {}
+        assertEquals(0, mb.size());
+    }
+
+    // an undersized buffer or a collection that throws must leave the mailbox consistent
+    public void testBatchBadSink() {
+        final Mailbox<Integer> mb = new Mailbox<Integer>(2, 5);
+        final Mailbox<Object> result = new Mailbox<Object>();
+        assertEquals(5, mb.putAllnb(new Integer[] {0, 1, 2, 3, 4}));
+        new Task() {
+            public void execute() throws Pausable {
+                try {
+                    mb.drainTo(new Integer[2], 3);
+                    result.put("drained");
+                } catch (IllegalArgumentException ex) {
+                    result.put(mb.size());
+                }
+            }
+        }.start();
+        assertEquals(5, result.getb(10000));
+        try {
+            mb.drainTonb(java.util.Collections.<Integer>emptyList(), 2);
+            fail();
+        } catch (UnsupportedOperationException ex) {}
+        assertEquals(3, mb.size());
+        assertEquals(2, (int) mb.getnb());
+        new Task() {
+            public void execute() throws Pausable {
+                Integer [] buf = new Integer[3];
+                int n = mb.drainTo(buf, 3);
+                result.put(n==2 && buf[0]==3 && buf[1]==4);
+                result.put(mb.get());
+            }
+        }.start();
+        assertEquals(true, result.getb(10000));
+        mb.putnb(5);
+        assertEquals(5, result.getb(10000));
+    }
 }
 
 class Msg {
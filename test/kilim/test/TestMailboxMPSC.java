@@ -0,0 +1,106 @@
+package kilim.test;
+
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.MailboxMPSC;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+public class TestMailboxMPSC extends TestCase {
+    static int timeout = 10000;
+    Scheduler sched;
+
+    public void setUp() { sched = new AffineScheduler(4,0); }
+    public void tearDown() { sched.shutdown(); }
+
+    static class Producer extends Task {
+        MailboxMPSC<Msg> mb;
+        int id, num;
+        Producer(MailboxMPSC<Msg> mb,int id,int num) { this.mb = mb; this.id = id; this.num = num; }
+        public void execute() throws Pausable {
+            for (int ii=0; ii < num; ii++)
+                mb.put(new Msg(id,ii));
+        }
+    }
+
+    /**
+     * many producers feed a consumer task through a small mailbox, so both sides pause,
+     * and each producer's messages arrive in order
+     */
+    public void testTasks() throws Exception {
+        final int nTasks = 50, nTimes = 2000;
+        final MailboxMPSC<Msg> mb = new MailboxMPSC<Msg>(16);
+        final MailboxMPSC<int []> result = new MailboxMPSC<int []>();
+        new Task() {
+            public void execute() throws Pausable {
+                int [] last = new int[nTasks];
+                java.util.Arrays.fill(last,-1);
+                for (int ii=0; ii < nTasks*nTimes; ii++) {
+                    Msg m = mb.get();
+                    assertEquals(last[m.tid]+1,m.num);
+                    last[m.tid] = m.num;
+                }
+                result.put(last);
+            }
+        }.setScheduler(sched).start();
+        for (int ii=0; ii < nTasks; ii++)
+            new Producer(mb,ii,nTimes).setScheduler(sched).start();
+        int [] last = result.getb(timeout);
+        assertNotNull(last);
+        for (int val : last)
+            assertEquals(nTimes-1,val);
+        assertNull(mb.getnb());
+        assertEquals(0,mb.size());
+    }
+
+    /** threads that block on both sides */
+    public void testThreads() throws Exception {
+        final int nThreads = 4, nTimes = 10000;
+        final MailboxMPSC<Msg> mb = new MailboxMPSC<Msg>(4);
+        for (int ii=0; ii < nThreads; ii++) {
+            final int id = ii;
+            new Thread() {
+                public void run() {
+                    for (int jj=0; jj < nTimes; jj++)
+                        mb.putb(new Msg(id,jj));
+                }
+            }.start();
+        }
+        int [] last = new int[nThreads];
+        java.util.Arrays.fill(last,-1);
+        for (int ii=0; ii < nThreads*nTimes; ii++) {
+            Msg m = mb.getb(timeout);
+            assertNotNull(m);
+            assertEquals(last[m.tid]+1,m.num);
+            last[m.tid] = m.num;
+        }
+        assertNull(mb.getb(10));
+    }
+
+    public void testBounds() throws Exception {
+        MailboxMPSC<Integer> mb = new MailboxMPSC<Integer>(3);
+        for (int ii=0; ii < 4; ii++)
+            assertTrue(mb.putnb(ii));
+        assertFalse(mb.putnb(4));
+        assertFalse(mb.hasSpace());
+        assertEquals(4,mb.size());
+        assertFalse(mb.putb(4,10));
+        assertEquals(0,(int) mb.getnb());
+        assertTrue(mb.putb(4,10));
+    }
+
+    public void testTimeout() throws Exception {
+        final MailboxMPSC<Integer> mb = new MailboxMPSC<Integer>();
+        final MailboxMPSC<Long> result = new MailboxMPSC<Long>();
+        new Task() {
+            public void execute() throws Pausable {
+                long start = System.currentTimeMillis();
+                assertNull(mb.get(50));
+                result.put(System.currentTimeMillis() - start);
+            }
+        }.setScheduler(sched).start();
+        long delta = result.getb(timeout);
+        assertTrue(delta >= 40 && delta < timeout);
+    }
+}
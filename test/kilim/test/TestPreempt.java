@@ -0,0 +1,103 @@
+package kilim.test;
+
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.analysis.ClassInfo;
+import kilim.analysis.KilimContext;
+import kilim.tools.Javac;
+import kilim.tools.Weaver;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/** preemptive weaving, ie weaving with KilimContext.preempt set, of a dynamically compiled task */
+public class TestPreempt extends TestCase {
+    static int timeout = 10000;
+
+    String code =
+        "package preempt;" +
+        "import kilim.*;" +
+        "public class Spin extends Task {" +
+        "    public static volatile boolean stop;" +
+        "    public static volatile long sink;" +
+        "    public void execute() throws Pausable {" +
+        "        long sum = 0;" +
+        "        while (! stop) sum++;" +
+        "        sink = sum;" +
+        "        locked();" +
+        "    }" +
+        "    void locked() throws Pausable {" +
+        "        synchronized (this) {" +
+        "            for (int ii=0; ii < 10; ii++) sink += ii;" +
+        "        }" +
+        "    }" +
+        "}";
+
+    String stopper =
+        "package preempt;" +
+        "import kilim.*;" +
+        "public class Stop extends Task {" +
+        "    public void execute() throws Pausable {" +
+        "        Spin.stop = true;" +
+        "    }" +
+        "}";
+
+    List<ClassInfo> weave(boolean preempt) throws Exception {
+        KilimContext context = new KilimContext();
+        context.preempt = preempt;
+        return new Weaver(context).weave(Javac.compile(Arrays.asList(code,stopper)));
+    }
+
+    ClassInfo spin(List<ClassInfo> classes) {
+        for (ClassInfo ci : classes)
+            if (ci.className.equals("preempt.Spin"))
+                return ci;
+        fail("not woven");
+        return null;
+    }
+
+    static class Loader extends ClassLoader {
+        Loader(List<ClassInfo> classes) {
+            super(TestPreempt.class.getClassLoader());
+            for (ClassInfo ci : classes)
+                if (ci.className.startsWith("preempt."))
+                    defineClass(ci.className,ci.bytes,0,ci.bytes.length);
+        }
+    }
+
+    /** the number of reads of the fiber's budget, ie inlined budget checks */
+    static int checks(ClassInfo ci) {
+        ClassNode cn = new ClassNode();
+        new ClassReader(ci.bytes).accept(cn,0);
+        int num = 0;
+        for (MethodNode mn : cn.methods)
+            for (AbstractInsnNode ain : mn.instructions.toArray())
+                if (ain.getOpcode()==Opcodes.GETFIELD && ((FieldInsnNode) ain).name.equals("budget"))
+                    num++;
+        return num;
+    }
+
+    /** without preempt the weaving is unchanged, with it only the unsynchronized loop gets a check */
+    public void testChecks() throws Exception {
+        assertEquals(0,checks(spin(weave(false))));
+        assertEquals(1,checks(spin(weave(true))));
+    }
+
+    /** a task that spins on a flag must yield its only thread to the task that sets the flag */
+    public void testSpin() throws Exception {
+        Loader loader = new Loader(weave(true));
+        Scheduler s = new AffineScheduler(1,0);
+        ((Task) loader.loadClass("preempt.Spin").newInstance()).setScheduler(s).start();
+        Thread.sleep(20);
+        ((Task) loader.loadClass("preempt.Stop").newInstance()).setScheduler(s).start();
+        assertTrue(s.awaitIdle(timeout));
+        s.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package kilim.test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.ForkJoinScheduler;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.concurrent.WeightedQueue;
+
+public class TestPriority extends TestCase {
+    static int timeout = 10000;
+
+    static WeightedQueue<Integer> queue() {
+        return new WeightedQueue<Integer>(0,8,4,1) {
+            protected int level(Integer e) { return e; }
+        };
+    }
+
+    /** with all levels busy, each round of polls is split by weight */
+    public void testWeights() {
+        WeightedQueue<Integer> q = queue();
+        for (int ii=0; ii < 100; ii++)
+            for (int level=0; level < 3; level++)
+                q.offer(level);
+        int [] counts = new int[3];
+        for (int ii=0; ii < 13*5; ii++)
+            counts[q.poll()]++;
+        assertEquals(40,counts[0]);
+        assertEquals(20,counts[1]);
+        assertEquals(5,counts[2]);
+        assertEquals(300-65,q.size());
+    }
+
+    /** a lower level must still be polled while a higher level is kept full */
+    public void testStarvation() {
+        WeightedQueue<Integer> q = queue();
+        q.offer(2);
+        q.offer(1);
+        int ii = 0;
+        for (q.offer(0); q.size() > 1; ii++)
+            if (q.poll()==0) q.offer(0);
+        assertTrue(ii <= 13);
+        assertEquals(0,(int) q.poll());
+        assertNull(q.poll());
+    }
+
+    static class Recorder extends Task {
+        ArrayList<Integer> order;
+        Recorder(ArrayList<Integer> order,int priority) { this.order = order; setPriority(priority); }
+        public void execute() throws Pausable {
+            synchronized (order) { order.add(getPriority()); }
+        }
+    }
+
+    /** with the only thread busy, a high priority task started after a backlog of low ones runs first */
+    public void testScheduler() throws Exception {
+        for (Scheduler s : new Scheduler[] { new AffineScheduler(1,0), new ForkJoinScheduler(1) }) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            Task blocker = new Task() {
+                public void execute() throws Pausable, Exception {
+                    latch.await();
+                }
+            };
+            blocker.setScheduler(s).start();
+            ArrayList<Integer> order = new ArrayList();
+            for (int ii=0; ii < 20; ii++)
+                new Recorder(order,Task.PRIORITY_LOW).setScheduler(s).start();
+            new Recorder(order,Task.PRIORITY_HIGH).setScheduler(s).start();
+            latch.countDown();
+            assertTrue(s.awaitIdle(timeout));
+            synchronized (order) {
+                assertEquals(21,order.size());
+                assertEquals(s.getClass().getSimpleName(),Task.PRIORITY_HIGH,(int) order.get(0));
+            }
+            s.shutdown();
+        }
+    }
+
+    public void testInvalid() {
+        try {
+            new Recorder(null,Task.NUM_PRIORITIES);
+            fail();
+        }
+        catch (IllegalArgumentException ex) {}
+    }
+}
@@ -0,0 +1,70 @@
+package kilim.test;
+
+import java.util.HashSet;
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.ExitMsg;
+import kilim.Fiber;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+
+public class TestRecycle extends TestCase {
+    static int timeout = 10000;
+
+    static class Recorder extends Task<Integer> {
+        HashSet<Fiber> fibers;
+        Recorder(HashSet<Fiber> fibers) { this.fibers = fibers; setRecyclable(true); }
+        public void execute() throws Pausable {
+            synchronized (fibers) { fibers.add(fiber); }
+            Task.sleep(1);
+            exit(id);
+        }
+    }
+
+    /** tasks that run one after another on a thread share a fiber, and their exit messages stay intact */
+    public void testReuse() throws Exception {
+        int num = 100;
+        Scheduler s = new AffineScheduler(1,0);
+        HashSet<Fiber> fibers = new HashSet();
+        Mailbox<ExitMsg<Integer>> exits = new Mailbox(num,num);
+        Task [] tasks = new Task[num];
+        for (int ii=0; ii < num; ii++) {
+            tasks[ii] = new Recorder(fibers);
+            tasks[ii].informOnExit(exits);
+            tasks[ii].setScheduler(s).start();
+            ExitMsg<Integer> msg = exits.getb(timeout);
+            assertSame(tasks[ii],msg.task);
+            assertEquals(tasks[ii].id,(int) msg.result);
+        }
+        for (Task task : tasks)
+            assertTrue(task.isDone());
+        assertEquals(1,fibers.size());
+        s.shutdown();
+    }
+
+    /** concurrent spawns with recycling enabled, each checking that it runs as itself */
+    public void testSpawn() throws Exception {
+        boolean prev = Task.recycle;
+        Task.recycle = true;
+        try {
+            int num = 1000;
+            Task.Spawn<Boolean> [] spawns = new Task.Spawn[num];
+            for (int ii=0; ii < num; ii++) {
+                spawns[ii] = Task.spawn(new Pausable.Spawn<Boolean>() {
+                    public Boolean execute() throws Pausable {
+                        Task self = Task.getCurrentTask();
+                        Task.sleep(1);
+                        Task.yield();
+                        return self==Task.getCurrentTask();
+                    }
+                });
+                assertTrue(spawns[ii].isRecyclable());
+            }
+            for (Task.Spawn<Boolean> spawn : spawns)
+                assertEquals(Boolean.TRUE,spawn.joinb().result);
+        }
+        finally { Task.recycle = prev; }
+    }
+}
@@ -0,0 +1,113 @@
+package kilim.test;
+
+import java.util.concurrent.CancellationException;
+import kilim.ExitMsg;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Task;
+import kilim.TaskScope;
+
+public class TestScope extends SchedulerTestCase {
+    static class Square extends Task<Integer> {
+        int val;
+        Square(int val) { this.val = val; }
+        public void execute() throws Pausable {
+            Task.yield();
+            exit(val*val);
+        }
+    }
+
+    /** a task forks children and pauses in join, with the results collected by index */
+    public void testJoin() throws Exception {
+        final int num = 1000;
+        final Mailbox<Integer []> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                TaskScope<Integer> scope = new TaskScope(new Integer[num]).setScheduler(sched);
+                for (int ii=0; ii < num; ii++)
+                    scope.fork(new Square(ii));
+                assertNull(scope.join());
+                assertEquals(0,scope.outstanding());
+                result.put(scope.getResults());
+            }
+        }.setScheduler(sched).start();
+        Integer [] squares = result.getb(timeout);
+        assertNotNull(squares);
+        for (int ii=0; ii < num; ii++)
+            assertEquals(ii*ii,(int) squares[ii]);
+    }
+
+    /** the first failure cancels the scope, so later children aren't started */
+    public void testFailure() throws Exception {
+        sched.setLogger(null);
+        TaskScope<Integer> scope = new TaskScope().setScheduler(sched);
+        final RuntimeException ex = new RuntimeException("expected");
+        scope.fork(new Pausable.Spawn<Integer>() {
+            public Integer execute() throws Pausable {
+                throw ex;
+            }
+        });
+        assertSame(ex,scope.joinb());
+        assertTrue(scope.isCancelled());
+        Square late = scope.fork(new Square(3));
+        assertNull(late.getScheduler());
+        assertSame(ex,scope.joinb());
+    }
+
+    public void testCancel() throws Exception {
+        TaskScope<Integer> scope = new TaskScope(new Integer[1]).setScheduler(sched);
+        scope.cancel();
+        scope.fork(new Square(3));
+        assertEquals(0,scope.outstanding());
+        assertTrue(scope.joinb() instanceof CancellationException);
+        assertNull(scope.getResults()[0]);
+    }
+
+    /** a failure, or a call to cancel, cancels the children that are paused */
+    public void testCancelRunning() throws Exception {
+        sched.setLogger(null);
+        for (int mode=0; mode < 2; mode++) {
+            TaskScope<Integer> scope = new TaskScope().setScheduler(sched);
+            final Mailbox<Integer> ready = new Mailbox();
+            Mailbox<ExitMsg<Integer>> exits = new Mailbox();
+            for (int ii=0; ii < 3; ii++)
+                scope.fork(new Task<Integer>() {
+                    public void execute() throws Pausable {
+                        ready.put(1);
+                        Task.sleep(1000000);
+                    }
+                }).informOnExit(exits);
+            for (int ii=0; ii < 3; ii++)
+                assertNotNull(ready.getb(timeout));
+            final RuntimeException ex = new RuntimeException("expected");
+            if (mode==0)
+                scope.fork(new Pausable.Spawn<Integer>() {
+                    public Integer execute() throws Pausable {
+                        throw ex;
+                    }
+                });
+            else
+                scope.cancel();
+            for (int ii=0; ii < 3; ii++) {
+                ExitMsg<Integer> msg = exits.getb(timeout);
+                assertNotNull(msg);
+                assertTrue((Object) msg.result instanceof CancellationException);
+            }
+            Throwable failure = scope.joinb();
+            if (mode==0) assertSame(ex,failure);
+            else assertTrue(failure instanceof CancellationException);
+        }
+    }
+
+    public void testTooMany() throws Exception {
+        TaskScope<Integer> scope = new TaskScope(new Integer[1]).setScheduler(sched);
+        scope.fork(new Square(3));
+        try {
+            scope.fork(new Square(4));
+            fail();
+        }
+        catch (IllegalStateException ex) {}
+        assertNull(scope.joinb());
+        assertEquals(9,(int) scope.getResults()[0]);
+    }
+}
@@ -0,0 +1,137 @@
+package kilim.test;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import kilim.Cell;
+import kilim.Mailbox;
+import kilim.MailboxMPSC;
+import kilim.Pausable;
+import kilim.Select;
+import kilim.Task;
+import kilim.nio.NioLoopScheduler;
+import kilim.nio.NioSelectorScheduler;
+import kilim.nio.SessionTask;
+
+public class TestSelect extends SchedulerTestCase {
+    /** two busy mailboxes are selected in turn, ie the first can't starve the second */
+    public void testFair() throws Exception {
+        final Mailbox<Integer> first = new Mailbox(), second = new Mailbox();
+        for (int ii=0; ii < 10; ii++) {
+            first.putnb(ii);
+            second.putnb(ii);
+        }
+        final Mailbox<String> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                Select sel = new Select().add(first).add(second);
+                String order = "";
+                for (int ii=0; ii < 6; ii++) {
+                    int index = sel.select();
+                    (index==0 ? first:second).getnb();
+                    order += index;
+                }
+                result.put(order);
+            }
+        }.setScheduler(sched).start();
+        assertEquals("010101",result.getb(timeout));
+    }
+
+    /** a select over a mix of channels and an alarm, reused across calls, with a timeout */
+    public void testMixed() throws Exception {
+        final Cell<Integer> cell = new Cell();
+        final MailboxMPSC<Integer> mpsc = new MailboxMPSC();
+        final Mailbox<Integer> result = new Mailbox();
+        new Task() {
+            public void execute() throws Pausable {
+                Select.Alarm alarm = new Select.Alarm(100);
+                Select sel = new Select().add(cell).add(mpsc).add(alarm);
+                for (int ii=0; ii < 2; ii++) {
+                    int index = sel.select();
+                    result.put(index);
+                    if (index==0) cell.getnb();
+                    if (index==1) mpsc.getnb();
+                }
+                result.put(sel.select());
+                long start = System.currentTimeMillis();
+                result.put(sel.select(50));
+                result.put((int) (System.currentTimeMillis() - start));
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        cell.putnb(1);
+        assertEquals(0,(int) result.getb(timeout));
+        mpsc.putnb(2);
+        assertEquals(1,(int) result.getb(timeout));
+        assertEquals(2,(int) result.getb(timeout));
+        assertEquals(-1,(int) result.getb(timeout));
+        assertTrue(result.getb(timeout) >= 40);
+    }
+
+    /** a cancelled select leaves no listener behind */
+    public void testCancel() throws Exception {
+        final Mailbox<Integer> box = new Mailbox();
+        Task task = new Task() {
+            public void execute() throws Pausable {
+                new Select().add(box).select();
+            }
+        }.setScheduler(sched).start();
+        Thread.sleep(20);
+        task.cancel();
+        task.joinb();
+        box.putnb(1);
+        assertEquals(1,(int) box.getb(timeout));
+    }
+
+    static Mailbox<String> received = new Mailbox();
+
+    /** a session that selects on its socket and a mailbox */
+    public static class Session extends SessionTask {
+        static Mailbox<String> control = new Mailbox();
+        public void execute() throws Pausable, Exception {
+            Select sel = new Select().add(endpoint.selectable(SelectionKey.OP_READ)).add(control);
+            ByteBuffer buf = ByteBuffer.allocate(100);
+            String text = "";
+            while (true) {
+                int index = sel.select();
+                if (index==1) {
+                    received.put(text + control.getnb());
+                    break;
+                }
+                int n = endpoint.dataChannel().read(buf);
+                buf.flip();
+                while (buf.hasRemaining()) text += (char) buf.get();
+                buf.clear();
+                if (n < 0) break;
+            }
+            close();
+        }
+    }
+
+    void session(int port) throws Exception {
+        Socket socket = new Socket("localhost",port);
+        OutputStream out = socket.getOutputStream();
+        out.write("hello".getBytes());
+        out.flush();
+        Thread.sleep(100);
+        out.write(" world".getBytes());
+        out.flush();
+        Thread.sleep(100);
+        Session.control.putnb("!");
+        assertEquals("hello world!",received.getb(timeout));
+        socket.close();
+    }
+
+    public void testEndPointLoop() throws Exception {
+        NioLoopScheduler loops = new NioLoopScheduler(2);
+        try { session(loops.listen(0,Session.class)); }
+        finally { loops.shutdown(); }
+    }
+
+    public void testEndPoint() throws Exception {
+        NioSelectorScheduler nio = new NioSelectorScheduler();
+        try { session(nio.listen(0,Session.class,sched)); }
+        finally { nio.shutdown(); }
+    }
+}
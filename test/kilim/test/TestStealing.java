@@ -0,0 +1,291 @@
+package kilim.test;
+
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.ExitMsg;
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.ReentrantLock;
+import kilim.Scheduler;
+import kilim.StealingScheduler;
+import kilim.Task;
+import kilim.concurrent.Affinity;
+import kilim.concurrent.IdleStrategy;
+
+public class TestStealing extends TestCase {
+    static int timeout = 10000;
+
+    public void testPinned() throws Exception {
+        int num = 100;
+        Scheduler s = new StealingScheduler(4);
+        Mailbox<ExitMsg> exitmb = new Mailbox<ExitMsg>();
+        for (int ii = 0; ii < num; ii++) {
+            Task t = new PinnedTask();
+            t.setScheduler(s);
+            t.informOnExit(exitmb);
+            t.start();
+        }
+        for (int ii = 0; ii < num; ii++) {
+            ExitMsg em = exitmb.getb(timeout);
+            assertNotNull("timed out, finished: " + ii,em);
+            assertEquals(0,em.result);
+        }
+        s.shutdown();
+    }
+
+    public void testRing() throws Exception {
+        int num = 100, laps = 100;
+        Scheduler s = new StealingScheduler(3);
+        Mailbox<Integer> [] mbs = new Mailbox[num];
+        for (int ii = 0; ii < num; ii++)
+            mbs[ii] = new Mailbox<Integer>();
+        Mailbox<Integer> done = new Mailbox<Integer>();
+        for (int ii = 0; ii < num; ii++) {
+            Task t = new RingTask(mbs[ii],ii+1 < num ? mbs[ii+1] : done,laps);
+            t.setScheduler(s);
+            t.start();
+        }
+        for (int ii = 0; ii < laps; ii++)
+            mbs[0].putnb(ii);
+        for (int ii = 0; ii < laps; ii++)
+            assertEquals(ii,(int) done.getb(timeout));
+        s.shutdown();
+    }
+
+    /** a task that blocks its thread must not hold up the tasks queued locally behind it */
+    public void testStealing() throws Exception {
+        final int num = 50;
+        Scheduler s = new StealingScheduler(2);
+        final Mailbox<Integer> mb = new Mailbox<Integer>();
+        final Mailbox<Integer> release = new Mailbox<Integer>();
+        Task hog = new Task() {
+            public void execute() throws Pausable {
+                for (int ii = 0; ii < num; ii++) {
+                    final int val = ii;
+                    Task t = new Task() {
+                        public void execute() throws Pausable {
+                            Task.yield();
+                            mb.put(val);
+                        }
+                    };
+                    t.setScheduler(getScheduler());
+                    t.start();
+                }
+                release.getb();
+            }
+        };
+        hog.setScheduler(s);
+        hog.start();
+        for (int ii = 0; ii < num; ii++)
+            assertNotNull(mb.getb(timeout));
+        release.putnb(0);
+        s.shutdown();
+    }
+
+    /** a pair of tasks bouncing messages via the runNext slot must not starve a task on the same worker */
+    public void testRunNext() throws Exception {
+        StealingScheduler s = new StealingScheduler(1).setRunNext(4);
+        final Mailbox<Integer> ping = new Mailbox<Integer>(), pong = new Mailbox<Integer>();
+        final Mailbox<Integer> finished = new Mailbox<Integer>();
+        Task [] tasks = new Task[] {
+            new RingTask(ping,pong,100000),
+            new RingTask(pong,ping,100000),
+            new Task() {
+                public void execute() throws Pausable {
+                    for (int ii = 0; ii < 100; ii++)
+                        Task.yield();
+                    finished.put(0);
+                }
+            }
+        };
+        for (Task t : tasks)
+            t.setScheduler(s);
+        tasks[0].start();
+        tasks[1].start();
+        ping.putnb(0);
+        tasks[2].start();
+        assertNotNull(finished.getb(timeout));
+        s.shutdown();
+    }
+
+    /** spinning workers must still pick up work and exit on shutdown */
+    public void testIdleStrategy() throws Exception {
+        IdleStrategy idle = new IdleStrategy(10,100,2);
+        Scheduler [] scheds = new Scheduler[] {
+            new StealingScheduler(2).setIdleStrategy(idle),
+            new AffineScheduler(2,0,idle)
+        };
+        for (Scheduler s : scheds) {
+            Mailbox<Integer> mb = new Mailbox<Integer>(), done = new Mailbox<Integer>();
+            Task t = new RingTask(mb,done,100);
+            t.setScheduler(s);
+            t.start();
+            for (int ii = 0; ii < 100; ii++) {
+                mb.putnb(ii);
+                assertEquals(ii,(int) done.getb(timeout));
+                Thread.sleep(0,100000);
+            }
+            s.shutdown();
+        }
+    }
+
+    /**
+     * a task blocking the only core thread must cause another worker to be started, pinned tasks must
+     * outlive keepAlive on their thread, and the extra workers must retire once idle
+     */
+    public void testElastic() throws Exception {
+        final StealingScheduler s = new StealingScheduler(1,4,0).setElastic(50,1000,1);
+        final Mailbox<Integer> mb = new Mailbox<Integer>(), release = new Mailbox<Integer>();
+        Task hog = new Task() {
+            public void execute() throws Pausable {
+                release.getb();
+            }
+        };
+        hog.setScheduler(s);
+        hog.start();
+        for (int ii = 0; ii < 10; ii++) {
+            final int val = ii;
+            Task t = new Task() {
+                public void execute() throws Pausable {
+                    mb.put(val);
+                }
+            };
+            t.setScheduler(s);
+            t.start();
+        }
+        for (int ii = 0; ii < 10; ii++)
+            assertNotNull(mb.getb(timeout));
+        assertTrue(s.numActive() > 1);
+
+        Mailbox<ExitMsg> exitmb = new Mailbox<ExitMsg>();
+        for (int ii = 0; ii < 3; ii++) {
+            Task t = new Task() {
+                public void execute() throws Pausable {
+                    ReentrantLock lock = new ReentrantLock();
+                    lock.lock();
+                    try { Task.sleep(200); }
+                    finally { lock.unlock(); }
+                }
+            };
+            t.setScheduler(s);
+            t.informOnExit(exitmb);
+            t.start();
+        }
+        for (int ii = 0; ii < 3; ii++) {
+            ExitMsg em = exitmb.getb(timeout);
+            assertNotNull("timed out, finished: " + ii,em);
+            assertFalse(em.result instanceof Throwable);
+        }
+
+        release.putnb(0);
+        long start = System.currentTimeMillis();
+        while (s.numActive() > 1 && System.currentTimeMillis() < start+timeout)
+            Thread.sleep(10);
+        assertEquals(1,s.numActive());
+        s.shutdown();
+    }
+
+    /** a task resumed from outside the scheduler should run in the partition that it last ran in */
+    public void testPartitions() throws Exception {
+        for (int home=0; home < 2; home++) {
+            StealingScheduler s = new StealingScheduler(4,4,0,"0",null);
+            assertEquals(2,s.numPartitions());
+            final Mailbox<Integer> mb = new Mailbox<Integer>(), reply = new Mailbox<Integer>();
+            final int [] counts = new int[2];
+            Task t = new Task() {
+                public void execute() throws Pausable {
+                    for (int ii=0; ii < 100; ii++) {
+                        mb.get();
+                        counts[getTid() % 2]++;
+                        reply.put(ii);
+                    }
+                }
+            };
+            // let the workers park, a worker that is still starting up can steal from the other partition
+            long start = System.currentTimeMillis();
+            while (s.numIdle() < 4 && System.currentTimeMillis() < start+timeout)
+                Thread.sleep(1);
+            assertEquals(4,s.numIdle());
+            s.start(t,home);
+            for (int ii = 0; ii < 100; ii++) {
+                mb.putnb(ii);
+                assertEquals(ii,(int) reply.getb(timeout));
+            }
+            // the other partition stays parked, so it never steals the task
+            assertEquals(100,counts[home]);
+            s.shutdown();
+        }
+        assertNull(Affinity.parse(" "));
+        assertEquals(2,Affinity.parse("0-3,8:4-7").length);
+        // bind a throwaway thread, ie not the thread that runs the remaining tests. bind fails soft, eg
+        // without taskset or where sched_setaffinity is blocked, so only check that it doesn't throw
+        final Throwable [] failure = new Throwable[1];
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    if (Affinity.threadId() >= 0 && Affinity.numaNodes().length > 0)
+                        Affinity.bind(Affinity.numaNodes()[0]);
+                }
+                catch (Throwable ex) { failure[0] = ex; }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNull(failure[0]);
+    }
+
+    public void testLocks() throws Exception {
+        int num = 10;
+        Scheduler s = new StealingScheduler(4);
+        Mailbox<ExitMsg> exitmb = new Mailbox<ExitMsg>();
+        for (int ii = 0; ii < num; ii++) {
+            Task t = new Task() {
+                public void execute() throws Pausable {
+                    ReentrantLock lock = new ReentrantLock();
+                    for (int jj = 0; jj < 10; jj++) {
+                        lock.lock();
+                        try { Task.sleep(1); }
+                        finally { lock.unlock(); }
+                    }
+                }
+            };
+            t.setScheduler(s);
+            t.informOnExit(exitmb);
+            t.start();
+        }
+        for (int ii = 0; ii < num; ii++) {
+            ExitMsg em = exitmb.getb(timeout);
+            assertNotNull("timed out, finished: " + ii,em);
+            assertFalse(em.result instanceof Throwable);
+        }
+        s.shutdown();
+    }
+
+    static class PinnedTask extends Task {
+        public void execute() throws Pausable, Exception {
+            long prefId = Thread.currentThread().getId();
+            pinToThread();
+            for (int i = 0; i < 100; i++) {
+                Task.yield();
+                if (prefId != Thread.currentThread().getId())
+                    Task.exit(1);
+            }
+            unpinFromThread();
+            Task.exit(0);
+        }
+    }
+
+    static class RingTask extends Task {
+        Mailbox<Integer> mymb, next;
+        int laps;
+        RingTask(Mailbox<Integer> mymb,Mailbox<Integer> next,int laps) {
+            this.mymb = mymb;
+            this.next = next;
+            this.laps = laps;
+        }
+        public void execute() throws Pausable {
+            for (int ii = 0; ii < laps; ii++)
+                next.put(mymb.get());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package kilim.test;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import kilim.AffineScheduler;
+import kilim.Event;
+import kilim.EventPublisher;
+import kilim.EventSubscriber;
+import kilim.Pausable;
+import kilim.Scheduler;
+import kilim.Task;
+import kilim.timerservice.Timer;
+import kilim.timerservice.TimerPriorityHeap;
+import kilim.timerservice.TimerService;
+import kilim.timerservice.TimerStore;
+import kilim.timerservice.TimerWheel;
+
+public class TestTimerWheel extends TestCase {
+    static long start = 1L << 40;
+
+    /** records the clock when the timer fires */
+    static class Probe implements EventSubscriber {
+        Timer timer = new Timer(this);
+        long clock, fired = -1;
+        int count;
+        public void onEvent(EventPublisher ep,Event e) {
+            count++;
+            fired = clock;
+            timer.setLiteral(-2);
+        }
+    }
+
+    /**
+     * schedule, reschedule and cancel random timers spanning millis to months while advancing the clock
+     * in random steps, and check that each pending timer fires exactly once, on the first expire at or after its time
+     */
+    void churn(TimerStore store,long seed) {
+        Random rand = new Random(seed);
+        int num = 2000;
+        Probe [] probes = new Probe[num];
+        long [] due = new long[num];
+        for (int ii=0; ii < num; ii++)
+            probes[ii] = new Probe();
+        long clock = start, prev = clock;
+        for (int step=0; step < 5000; step++) {
+            for (int jj=0; jj < 4; jj++) {
+                int index = rand.nextInt(num);
+                Probe probe = probes[index];
+                if (probe.count > 0 || (due[index] > 0 && due[index] <= clock))
+                    continue;
+                if (rand.nextInt(5)==0) {
+                    probe.timer.cancel();
+                    due[index] = 0;
+                }
+                else {
+                    int range = rand.nextInt(4);
+                    long delay = range==0 ? rand.nextInt(100) : range==1 ? rand.nextInt(10000)
+                            : range==2 ? rand.nextInt(1000000) : rand.nextLong() >>> 30;
+                    probe.timer.setLiteral(due[index] = clock+1+delay);
+                }
+                store.schedule(probe.timer);
+            }
+            long delta = rand.nextInt(8)==0 ? rand.nextInt(1<<24) : rand.nextInt(50);
+            prev = clock;
+            clock += delta;
+            for (Probe probe : probes)
+                probe.clock = clock;
+            long next = store.expire(clock);
+            assertTrue(next==0 || next > clock);
+            for (int ii=0; ii < num; ii++) {
+                Probe probe = probes[ii];
+                if (due[ii] > 0 && due[ii] <= clock) {
+                    assertEquals(1,probe.count);
+                    assertTrue(probe.fired >= due[ii] && prev < due[ii] || probe.fired < clock);
+                    // retire the probe
+                    due[ii] = -1;
+                }
+                else if (due[ii] > clock)
+                    assertEquals(0,probe.count);
+            }
+            for (int ii=0; ii < num; ii++)
+                if (due[ii]==-1) {
+                    probes[ii] = new Probe();
+                    due[ii] = 0;
+                }
+        }
+        store.purge();
+        for (Probe probe : probes)
+            probe.clock = Long.MAX_VALUE;
+        store.expire(Long.MAX_VALUE);
+        assertTrue(store.isEmpty());
+    }
+
+    public void testWheel() {
+        for (int ii=0; ii < 5; ii++)
+            churn(new TimerWheel(start),ii);
+    }
+
+    public void testHeap() {
+        for (int ii=0; ii < 5; ii++)
+            churn(new TimerPriorityHeap(),ii);
+    }
+
+    /** the wheel reports when it needs to be expired next, and skips idle stretches */
+    public void testNext() {
+        TimerWheel wheel = new TimerWheel(start);
+        Probe probe = new Probe();
+        long target = start + 100000;
+        probe.timer.setLiteral(target);
+        wheel.schedule(probe.timer);
+        long clock = start;
+        int steps = 0;
+        while (probe.count==0) {
+            long next = wheel.expire(clock);
+            assertTrue(next==0 || next > clock && next <= target);
+            clock = next==0 ? clock : next;
+            steps++;
+        }
+        assertEquals(target,clock);
+        assertTrue(steps < 10);
+        assertTrue(wheel.isEmpty());
+        probe = new Probe();
+        probe.timer.setLiteral(clock + 10);
+        wheel.schedule(probe.timer);
+        probe.timer.cancel();
+        wheel.schedule(probe.timer);
+        assertTrue(wheel.isEmpty());
+    }
+
+    /** tasks sleep on a scheduler whose timer service uses the wheel */
+    public void testService() throws Exception {
+        boolean prior = TimerService.useWheel;
+        TimerService.useWheel = true;
+        Scheduler sched = new AffineScheduler(2,0);
+        TimerService.useWheel = prior;
+        try {
+            Task [] tasks = new Task[100];
+            long begin = System.currentTimeMillis();
+            for (int ii=0; ii < tasks.length; ii++) {
+                final int delay = ii % 10 * 10;
+                tasks[ii] = new Task() {
+                    public void execute() throws Pausable {
+                        long t1 = System.currentTimeMillis();
+                        Task.sleep(delay);
+                        exit(System.currentTimeMillis() - t1 >= delay);
+                    }
+                }.setScheduler(sched).start();
+            }
+            for (Task task : tasks)
+                assertEquals(Boolean.TRUE,task.joinb().result);
+            assertTrue(System.currentTimeMillis() - begin < 10000);
+        }
+        finally { sched.shutdown(); }
+    }
+}